@@ -0,0 +1,84 @@
+package ru.practicum.category.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.category.dto.CategoryDto;
+import ru.practicum.category.mapper.CategoryMapper;
+import ru.practicum.category.repository.CategoryRepository;
+
+import java.util.*;
+
+/**
+ * Полный снимок категорий в памяти. Читатели работают с неизменяемым снимком без блокировок,
+ * изменения после коммита применяются к копии, которая затем подменяет текущий снимок.
+ */
+@Slf4j
+@Component
+public class CategoryCache {
+    private final CategoryRepository categoryRepository;
+    private final CategoryMapper categoryMapper;
+    private volatile Snapshot snapshot;
+
+    public CategoryCache(CategoryRepository categoryRepository, CategoryMapper categoryMapper) {
+        this.categoryRepository = categoryRepository;
+        this.categoryMapper = categoryMapper;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        Map<Long, CategoryDto> categories = new TreeMap<>();
+
+        categoryRepository.findAll(Sort.by("id")).forEach(category ->
+                categories.put(category.getId(), categoryMapper.mapToCategoryDto(category)));
+
+        snapshot = new Snapshot(categories);
+        log.info("Загружено категорий в кэш: {}", categories.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCategoryChanged(CategoryChangedEvent event) {
+        Map<Long, CategoryDto> categories = new TreeMap<>(current().byId());
+
+        if (event.category() == null) {
+            categories.remove(event.categoryId());
+        } else {
+            categories.put(event.categoryId(), event.category());
+        }
+
+        snapshot = new Snapshot(categories);
+    }
+
+    public Optional<CategoryDto> get(Long catId) {
+        return Optional.ofNullable(current().byId().get(catId));
+    }
+
+    public boolean exists(Long catId) {
+        return current().byId().containsKey(catId);
+    }
+
+    // Категории в порядке id
+    public List<CategoryDto> getAll() {
+        return current().ordered();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+
+        if (current == null) {
+            reload();
+            current = snapshot;
+        }
+
+        return current;
+    }
+
+    private record Snapshot(Map<Long, CategoryDto> byId, List<CategoryDto> ordered) {
+        Snapshot(Map<Long, CategoryDto> categories) {
+            this(Collections.unmodifiableMap(categories), List.copyOf(categories.values()));
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.category.service;
+
+import ru.practicum.category.dto.CategoryDto;
+
+// category == null - категория удалена
+public record CategoryChangedEvent(Long categoryId, CategoryDto category) {
+}
@@ -2,7 +2,9 @@ package ru.practicum.category.service;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,6 +17,7 @@ import ru.practicum.category.model.Category;
 import ru.practicum.handler.exception.NotFoundException;
 import ru.practicum.handler.exception.ConflictException;
 
+import java.util.List;
 import java.util.Optional;
 
 @Slf4j
@@ -24,6 +27,8 @@ import java.util.Optional;
 public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
     private final CategoryMapper categoryMapper;
+    private final CategoryCache categoryCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -41,7 +46,10 @@ public class CategoryServiceImpl implements CategoryService {
         Category savedCategory = categoryRepository.save(category);
         log.debug("SAVED category: {}", savedCategory);
 
-        return categoryMapper.mapToCategoryDto(savedCategory);
+        CategoryDto categoryDto = categoryMapper.mapToCategoryDto(savedCategory);
+        eventPublisher.publishEvent(new CategoryChangedEvent(savedCategory.getId(), categoryDto));
+
+        return categoryDto;
     }
 
     @Override
@@ -49,6 +57,7 @@ public class CategoryServiceImpl implements CategoryService {
     public void deleteCategory(Long catId) {
         checkCategoryExists(catId);
         categoryRepository.deleteById(catId);
+        eventPublisher.publishEvent(new CategoryChangedEvent(catId, null));
 
         log.info("DELETE category: id={}", catId);
     }
@@ -78,32 +87,35 @@ public class CategoryServiceImpl implements CategoryService {
         Category patchedCategory = categoryRepository.save(category);
         log.debug("PATCHED category: {}", patchedCategory);
 
-        return categoryMapper.mapToCategoryDto(patchedCategory);
+        CategoryDto categoryDto = categoryMapper.mapToCategoryDto(patchedCategory);
+        eventPublisher.publishEvent(new CategoryChangedEvent(catId, categoryDto));
+
+        return categoryDto;
     }
 
     @Override
     public CategoryDto getCategory(Long catId) {
         log.info("GET category: id={}", catId);
-        Category category = checkCategoryExists(catId);
-
-        log.debug("FIND category: {}", category);
 
-        CategoryDto categoryDto = categoryMapper.mapToCategoryDto(category);
-        log.debug("MAP category: {}", categoryDto);
-
-        return categoryDto;
+        return categoryCache.get(catId)
+                .orElseThrow(() -> {
+                    log.error("Category {} not found", catId);
+                    return new NotFoundException("Category with id=" + catId + " was not found");
+                });
     }
 
+    // Список отдаётся из снимка кэша, сортировка в нём всегда по id
     @Override
     public Page<CategoryDto> getCategories(Pageable pageable) {
         log.info("GET categories");
 
-        Page<CategoryDto> categories = categoryRepository.findAll(pageable)
-                .map(categoryMapper::mapToCategoryDto);
+        List<CategoryDto> categories = categoryCache.getAll();
+        int from = (int) Math.min(pageable.getOffset(), categories.size());
+        int to = Math.min(from + pageable.getPageSize(), categories.size());
 
-        log.info("FIND categories: size={}", categories.getTotalElements());
+        log.info("FIND categories: size={}", categories.size());
 
-        return categories;
+        return new PageImpl<>(categories.subList(from, to), pageable, categories.size());
     }
 
     private Category checkCategoryExists(Long catId) {
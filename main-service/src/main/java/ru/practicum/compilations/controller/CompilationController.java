@@ -3,20 +3,22 @@ package ru.practicum.compilations.controller;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.compilations.dto.CompilationDto;
 import ru.practicum.compilations.dto.CompilationSearchParam;
+import ru.practicum.compilations.service.CompilationPageCache;
 import ru.practicum.compilations.service.CompilationService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping(path = "/compilations")
 @RequiredArgsConstructor
 public class CompilationController {
     private static final String PATH = "comp-id";
     private final CompilationService compilationService;
+    private final CompilationPageCache compilationPageCache;
 
     @GetMapping("/{comp-id}")
     public ResponseEntity<CompilationDto> get(@PathVariable(PATH) @Positive long compId) {
@@ -26,13 +28,22 @@ public class CompilationController {
     }
 
     @GetMapping
-    public ResponseEntity<List<CompilationDto>> getCompilations(
+    public ResponseEntity<byte[]> getCompilations(
             @RequestParam(required = false, name = "pinned") Boolean pinned,
             @RequestParam(name = "from", defaultValue = "0") @PositiveOrZero int from,
-            @RequestParam(name = "size", defaultValue = "10") @PositiveOrZero int size) {
+            @RequestParam(name = "size", defaultValue = "10") @PositiveOrZero int size,
+            WebRequest request) {
 
         CompilationSearchParam params = new CompilationSearchParam(pinned, from, size);
+        CompilationPageCache.CachedPage page = compilationPageCache.get(params);
+
+        if (request.checkNotModified(page.etag())) {
+            return null;
+        }
 
-        return ResponseEntity.ok().body(compilationService.getCompilations(params));
+        return ResponseEntity.ok()
+                .eTag(page.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(page.body());
     }
 }
\ No newline at end of file
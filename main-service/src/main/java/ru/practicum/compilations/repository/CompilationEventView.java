@@ -0,0 +1,7 @@
+package ru.practicum.compilations.repository;
+
+import ru.practicum.event.repository.EventShortView;
+
+public interface CompilationEventView extends EventShortView {
+    Long getCompilationId();
+}
@@ -6,9 +6,20 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.compilations.model.Compilation;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
-    @Query("SELECT c FROM Compilation c WHERE :pinned IS NULL OR c.pinned = :pinned")
+    @Query("SELECT c FROM Compilation c WHERE :pinned IS NULL OR c.pinned = :pinned ORDER BY c.id")
     List<Compilation> findAllByPinned(@Param("pinned") Boolean pinned, Pageable pageable);
-}
\ No newline at end of file
+
+    // События всех подборок страницы одним запросом, сразу с категорией и инициатором
+    @Query("SELECT comp.id AS compilationId, e.id AS id, e.annotation AS annotation, " +
+            "c.id AS categoryId, c.name AS categoryName, e.confirmedRequests AS confirmedRequests, " +
+            "e.eventDate AS eventDate, u.id AS initiatorId, u.name AS initiatorName, " +
+            "e.paid AS paid, e.title AS title " +
+            "FROM Compilation comp JOIN comp.events e JOIN e.category c JOIN e.initiator u " +
+            "WHERE comp.id IN :compilationIds " +
+            "ORDER BY comp.id, e.id")
+    List<CompilationEventView> findEventsByCompilationIds(@Param("compilationIds") Collection<Long> compilationIds);
+}
@@ -0,0 +1,4 @@
+package ru.practicum.compilations.service;
+
+public record CompilationChangedEvent(Long compilationId) {
+}
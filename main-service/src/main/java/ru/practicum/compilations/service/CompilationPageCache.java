@@ -0,0 +1,111 @@
+package ru.practicum.compilations.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+import ru.practicum.category.service.CategoryChangedEvent;
+import ru.practicum.compilations.dto.CompilationSearchParam;
+import ru.practicum.event.service.EventChangedEvent;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш сериализованных страниц подборок по (pinned, from, size). Сбрасывается целиком после коммита изменений
+ * подборок, событий (включая подтверждение заявок) и категорий; просмотры внутри страницы обновляются по ttl.
+ * При переполнении вытесняется давно не запрошенная страница.
+ */
+@Slf4j
+@Component
+public class CompilationPageCache {
+    private final CompilationService compilationService;
+    private final ObjectMapper objectMapper;
+    private final long ttlNanos;
+    private final Map<Key, CachedPage> pages;
+    private final AtomicLong generation = new AtomicLong();
+
+    public CompilationPageCache(CompilationService compilationService,
+                                ObjectMapper objectMapper,
+                                @Value("${compilations.cache.ttl:30s}") Duration ttl,
+                                @Value("${compilations.cache.max-size:1000}") int maxSize) {
+        this.compilationService = compilationService;
+        this.objectMapper = objectMapper;
+        this.ttlNanos = ttl.toNanos();
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedPage> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public CachedPage get(CompilationSearchParam params) {
+        Key key = new Key(params.getPinned(), params.getFrom(), params.getSize());
+        CachedPage page;
+
+        synchronized (pages) {
+            page = pages.get(key);
+        }
+
+        if (page != null && System.nanoTime() - page.loadedAt() < ttlNanos) {
+            return page;
+        }
+
+        // Страница, собранная до сброса, в кэш не кладётся: иначе она переживёт изменение
+        long loadedGeneration = generation.get();
+        page = render(params);
+
+        synchronized (pages) {
+            if (generation.get() == loadedGeneration) {
+                pages.put(key, page);
+            }
+        }
+
+        return page;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCompilationChanged(CompilationChangedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventChanged(EventChangedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        invalidate();
+    }
+
+    public void invalidate() {
+        synchronized (pages) {
+            generation.incrementAndGet();
+            pages.clear();
+        }
+
+        log.debug("Кэш страниц подборок сброшен");
+    }
+
+    private CachedPage render(CompilationSearchParam params) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(compilationService.getCompilations(params));
+            return new CachedPage(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"", System.nanoTime());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать подборки", e);
+        }
+    }
+
+    public record CachedPage(byte[] body, String etag, long loadedAt) {
+    }
+
+    private record Key(Boolean pinned, int from, int size) {
+    }
+}
@@ -2,26 +2,26 @@ package ru.practicum.compilations.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.client.StatClient;
 import ru.practicum.compilations.dto.CompilationDto;
 import ru.practicum.compilations.dto.CompilationSearchParam;
 import ru.practicum.compilations.dto.NewCompilationDto;
 import ru.practicum.compilations.dto.UpdateCompilationRequest;
 import ru.practicum.compilations.dto.CompilationMapper;
 import ru.practicum.compilations.model.Compilation;
+import ru.practicum.compilations.repository.CompilationEventView;
 import ru.practicum.compilations.repository.CompilationRepository;
-import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.mapper.EventMapper;
 import ru.practicum.event.model.Event;
 import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.service.EventViewsCache;
 import ru.practicum.handler.exception.NotFoundException;
 
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -34,7 +34,8 @@ public class CompilationServiceImpl implements CompilationService {
     private final EventRepository eventRepository;
     private final CompilationMapper compilationMapper;
     private final EventMapper eventMapper;
-    private final StatClient statClient;
+    private final EventViewsCache viewsCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -50,6 +51,7 @@ public class CompilationServiceImpl implements CompilationService {
 
         Compilation savedCompilation = compilationRepository.save(compilation);
         log.info("Compilation saved with id: {}", savedCompilation.getId());
+        eventPublisher.publishEvent(new CompilationChangedEvent(savedCompilation.getId()));
 
         return buildCompilationDto(savedCompilation);
     }
@@ -77,6 +79,7 @@ public class CompilationServiceImpl implements CompilationService {
 
         Compilation updatedCompilation = compilationRepository.save(compilation);
         log.info("Compilation updated: {}", updatedCompilation.getId());
+        eventPublisher.publishEvent(new CompilationChangedEvent(compId));
 
         return buildCompilationDto(updatedCompilation);
     }
@@ -92,6 +95,7 @@ public class CompilationServiceImpl implements CompilationService {
 
         compilationRepository.deleteById(compId);
         log.info("Compilation deleted: {}", compId);
+        eventPublisher.publishEvent(new CompilationChangedEvent(compId));
     }
 
     @Override
@@ -114,68 +118,35 @@ public class CompilationServiceImpl implements CompilationService {
 
         log.info("Found {} compilations", compilations.size());
 
-        return compilations.stream()
-                .map(this::buildCompilationDto)
-                .collect(Collectors.toList());
+        return buildCompilationDtos(compilations);
     }
 
     private CompilationDto buildCompilationDto(Compilation compilation) {
-        List<Event> events = new ArrayList<>(compilation.getEvents());
-
-        if (events.isEmpty()) {
-            return compilationMapper.toCompilationDto(compilation, Collections.emptyList());
-        }
-
-        Map<Long, Long> viewsMap = getEventsViews(events);
-        Map<Long, Long> confirmedRequestsMap = getConfirmedRequests(events);
-
-        List<EventShortDto> eventShortDtos = events.stream()
-                .map(event -> {
-                    Long views = viewsMap.getOrDefault(event.getId(), 0L);
-                    Long confirmedRequests = confirmedRequestsMap.getOrDefault(event.getId(), 0L);
-                    return eventMapper.toEventShortDto(event, views, confirmedRequests);
-                })
-                .collect(Collectors.toList());
-
-        return compilationMapper.toCompilationDto(compilation, eventShortDtos);
+        return buildCompilationDtos(List.of(compilation)).get(0);
     }
 
-    private Map<Long, Long> getEventsViews(List<Event> events) {
-        Map<Long, Long> views = new HashMap<>();
-
-        if (events.isEmpty()) {
-            return views;
+    // Подборки страницы, их события и просмотры собираются за фиксированное число запросов:
+    // события всех подборок - одним запросом, просмотры - одним батчем по объединению id
+    private List<CompilationDto> buildCompilationDtos(List<Compilation> compilations) {
+        if (compilations.isEmpty()) {
+            return Collections.emptyList();
         }
 
-        List<String> uris = events.stream()
-                .map(event -> "/events/" + event.getId())
-                .collect(Collectors.toList());
-
-        try {
-            List<ViewStatsDto> stats = statClient.getStats(
-                    LocalDateTime.now().minusYears(1),
-                    LocalDateTime.now().plusYears(1),
-                    uris.isEmpty() ? Collections.emptyList() : uris,
-                    true);
-
-            for (ViewStatsDto stat : stats) {
-                String uri = stat.getUri();
-                Long eventId = Long.parseLong(uri.substring(uri.lastIndexOf("/") + 1));
-                views.put(eventId, stat.getHits());
-            }
-        } catch (Exception e) {
-            log.warn("Error getting stats from stats-service: {}. Returning 0 views for all events.", e.getMessage());
-        }
+        List<CompilationEventView> rows = compilationRepository.findEventsByCompilationIds(
+                compilations.stream().map(Compilation::getId).toList());
 
-        return views;
-    }
+        Map<Long, Long> viewsMap = rows.isEmpty()
+                ? Collections.emptyMap()
+                : viewsCache.getViews(rows.stream().map(CompilationEventView::getId).collect(Collectors.toSet()));
 
-    private Map<Long, Long> getConfirmedRequests(List<Event> events) {
-        Map<Long, Long> confirmedRequests = new HashMap<>();
+        Map<Long, List<EventShortDto>> eventsByCompilation = rows.stream()
+                .collect(Collectors.groupingBy(CompilationEventView::getCompilationId,
+                        Collectors.mapping(row -> eventMapper.toEventShortDto(row,
+                                viewsMap.getOrDefault(row.getId(), 0L)), Collectors.toList())));
 
-        for (Event event : events) {
-            confirmedRequests.put(event.getId(), 0L);
-        }
-        return confirmedRequests;
+        return compilations.stream()
+                .map(compilation -> compilationMapper.toCompilationDto(compilation,
+                        eventsByCompilation.getOrDefault(compilation.getId(), Collections.emptyList())))
+                .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
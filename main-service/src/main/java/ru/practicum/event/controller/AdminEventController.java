@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.event.dto.CursorPage;
 import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.dto.EventParams;
 import ru.practicum.event.dto.PageParams;
@@ -29,11 +30,20 @@ public class AdminEventController {
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeStart,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
             @RequestParam(name = "from", defaultValue = "0") Integer from,
-            @RequestParam(name = "size", defaultValue = "10") Integer size) {
+            @RequestParam(name = "size", defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor) {
 
-        PageParams pageParams = new PageParams(from, size);
+        PageParams pageParams = new PageParams(from, size, cursor);
         EventParams params = new EventParams(users, states, categories, rangeStart, rangeEnd, pageParams);
 
+        if (cursor != null) {
+            CursorPage<EventFullDto> page = eventService.getEventsByAdminFiltersByCursor(params);
+
+            return ResponseEntity.ok()
+                    .headers(page.headers())
+                    .body(page.getItems());
+        }
+
         return ResponseEntity.ok()
                 .body(eventService.getEventsByAdminFilters(params));
     }
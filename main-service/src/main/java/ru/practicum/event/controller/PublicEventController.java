@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.event.dto.CursorPage;
 import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.dto.PageParams;
@@ -34,6 +35,7 @@ public class PublicEventController {
             @RequestParam(required = false) String sort,
             @RequestParam(defaultValue = "0") Integer from,
             @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor,
             HttpServletRequest request) {
 
         if (rangeStart != null && rangeEnd != null && rangeEnd.isBefore(rangeStart)) {
@@ -41,7 +43,17 @@ public class PublicEventController {
         }
 
         PublicEventParams params = new PublicEventParams(text, categories, paid, rangeStart,
-                rangeEnd, onlyAvailable, sort, new PageParams(from, size));
+                rangeEnd, onlyAvailable, sort, new PageParams(from, size, cursor));
+
+        if (cursor != null) {
+            CursorPage<EventShortDto> page = eventService.getEventsByPublicFiltersByCursor(params);
+
+            eventService.saveStats(request);
+
+            return ResponseEntity.ok()
+                    .headers(page.headers())
+                    .body(page.getItems());
+        }
 
         List<EventShortDto> events = eventService.getEventsByPublicFilters(params, request);
 
@@ -0,0 +1,27 @@
+package ru.practicum.event.dto;
+
+import lombok.*;
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class CursorPage<T> {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private List<T> items;
+    private String nextCursor;
+
+    // На последней странице заголовка нет
+    public HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+
+        if (nextCursor != null) {
+            headers.set(NEXT_CURSOR_HEADER, nextCursor);
+        }
+
+        return headers;
+    }
+}
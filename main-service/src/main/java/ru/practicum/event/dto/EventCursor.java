@@ -0,0 +1,58 @@
+package ru.practicum.event.dto;
+
+import lombok.*;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.repository.EventShortView;
+import ru.practicum.handler.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Позиция keyset-пагинации: дата и id последнего отданного события. Клиенту передаётся как непрозрачная
+ * строка, пустой курсор означает первую страницу.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class EventCursor {
+    private static final String SEPARATOR = "|";
+
+    private LocalDateTime eventDate;
+    private Long id;
+
+    public static EventCursor after(Event event) {
+        return new EventCursor(event.getEventDate(), event.getId());
+    }
+
+    public static EventCursor after(EventShortView event) {
+        return new EventCursor(event.getEventDate(), event.getId());
+    }
+
+    public static EventCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return new EventCursor(null, null);
+        }
+
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+
+            return new EventCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor: " + token);
+        }
+    }
+
+    // Пустой курсор - первая страница, она читается отдельным запросом без условия на позицию
+    public boolean isStart() {
+        return eventDate == null;
+    }
+
+    public String encode() {
+        String value = eventDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
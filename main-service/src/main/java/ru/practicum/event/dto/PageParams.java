@@ -10,4 +10,5 @@ import lombok.*;
 public class PageParams {
     private Integer from = 0;
     private Integer size = 10;
+    private String cursor;
 }
\ No newline at end of file
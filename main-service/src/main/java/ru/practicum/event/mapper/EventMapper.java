@@ -2,16 +2,19 @@ package ru.practicum.event.mapper;
 
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import ru.practicum.category.dto.CategoryDto;
 import ru.practicum.category.model.Category;
 import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.dto.NewEventDto;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.repository.EventShortView;
 import ru.practicum.location.dto.Location;
 import ru.practicum.location.model.LocationEntity;
+import ru.practicum.user.dto.UserShortDto;
 import ru.practicum.user.model.User;
 
-@Mapper(componentModel = "spring")
+@Mapper(componentModel = "spring", imports = {CategoryDto.class, UserShortDto.class})
 public interface EventMapper {
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "category", source = "category")
@@ -21,6 +24,8 @@ public interface EventMapper {
     @Mapping(target = "location", source = "newEventDto.location")
     @Mapping(target = "publishedOn", ignore = true)
     @Mapping(target = "comments", ignore = true)
+    @Mapping(target = "confirmedRequests", ignore = true)
+    @Mapping(target = "views", ignore = true)
     Event toEvent(NewEventDto newEventDto, Category category, User user);
 
     @Mapping(target = "location", source = "event.location")
@@ -34,6 +39,12 @@ public interface EventMapper {
     @Mapping(target = "confirmedRequests", source = "confirmedRequests", defaultValue = "0L")
     EventShortDto toEventShortDto(Event event, Long views, Long confirmedRequests);
 
+    @Mapping(target = "category", expression = "java(new CategoryDto(event.getCategoryId(), event.getCategoryName()))")
+    @Mapping(target = "initiator", expression = "java(new UserShortDto(event.getInitiatorId(), event.getInitiatorName()))")
+    @Mapping(target = "views", source = "views", defaultValue = "0L")
+    @Mapping(target = "confirmedRequests", source = "event.confirmedRequests", defaultValue = "0L")
+    EventShortDto toEventShortDto(EventShortView event, Long views);
+
     default LocationEntity map(Location location) {
         if (location == null) {
             return null;
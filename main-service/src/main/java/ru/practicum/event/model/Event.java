@@ -52,6 +52,14 @@ public class Event {
     @Column(nullable = false)
     private Integer participantLimit;
 
+    // Счётчики меняются только целевыми UPDATE в репозитории; сохранение сущности не должно затирать их
+    // значением, прочитанным в начале транзакции
+    @Column(nullable = false, updatable = false)
+    private Long confirmedRequests = 0L;
+
+    @Column(nullable = false, updatable = false)
+    private Long views = 0L;
+
     private LocalDateTime publishedOn;
 
     @Column(nullable = false)
@@ -2,27 +2,120 @@ package ru.practicum.event.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.event.model.Event;
 import ru.practicum.event.model.EventState;
+import ru.practicum.request.repository.EventRequestCount;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 public interface EventRepository extends JpaRepository<Event, Long> {
-    Page<Event> findAllByInitiatorId(Long userId, Pageable pageable);
+    String SHORT_VIEW_SELECT = "SELECT e.id AS id, e.annotation AS annotation, " +
+            "c.id AS categoryId, c.name AS categoryName, e.confirmedRequests AS confirmedRequests, " +
+            "e.eventDate AS eventDate, u.id AS initiatorId, u.name AS initiatorName, " +
+            "e.paid AS paid, e.title AS title " +
+            "FROM Event e JOIN e.category c JOIN e.initiator u ";
 
-    Optional<Event> findByIdAndInitiatorId(Long eventId, Long userId);
+    String SHORT_VIEW_NATIVE_SELECT = "SELECT e.id AS id, e.annotation AS annotation, " +
+            "c.id AS \"categoryId\", c.name AS \"categoryName\", e.confirmed_requests AS \"confirmedRequests\", " +
+            "e.event_date AS \"eventDate\", u.id AS \"initiatorId\", u.name AS \"initiatorName\", " +
+            "e.paid AS paid, e.title AS title";
 
-    @Query("SELECT e FROM Event e " +
-            "WHERE (:users IS NULL OR e.initiator.id IN :users) " +
+    String SHORT_VIEW_NATIVE_FROM = " FROM events e " +
+            "JOIN categories c ON c.id = e.category_id " +
+            "JOIN users u ON u.id = e.initiator_id ";
+
+    // Keyset-пагинация по (eventDate, id): сравнение кортежей берётся диапазоном по индексу (event_date, id),
+    // поэтому глубокая страница стоит столько же, сколько первая. Первая страница - отдельный запрос без курсора
+    String KEYSET_AFTER = "AND (e.eventDate, e.id) > (:afterDate, :afterId) ";
+
+    String KEYSET_ORDER = "ORDER BY e.eventDate, e.id";
+
+    String ADMIN_FILTER = "WHERE (:users IS NULL OR e.initiator.id IN :users) " +
             "AND (:states IS NULL OR e.state IN :states) " +
             "AND (:categories IS NULL OR e.category.id IN :categories) " +
             "AND (CAST(:rangeStart AS timestamp) IS NULL OR e.eventDate >= :rangeStart) " +
-            "AND (CAST(:rangeEnd AS timestamp) IS NULL OR e.eventDate <= :rangeEnd)")
+            "AND (CAST(:rangeEnd AS timestamp) IS NULL OR e.eventDate <= :rangeEnd) ";
+
+    String PUBLIC_FILTER = "WHERE e.state = 'PUBLISHED' " +
+            "AND (CAST(:text AS string) IS NULL " +
+            "OR (LOWER(e.annotation) LIKE LOWER(CONCAT('%', CAST(:text AS string), '%')) " +
+            "OR LOWER(e.description) LIKE LOWER(CONCAT('%', CAST(:text AS string), '%')))) " +
+            "AND (:categories IS NULL OR e.category.id IN :categories) " +
+            "AND (:paid IS NULL OR e.paid = :paid) " +
+            "AND (CAST(:rangeStart AS timestamp) IS NULL OR e.eventDate >= :rangeStart) " +
+            "AND (CAST(:rangeEnd AS timestamp) IS NULL OR e.eventDate <= :rangeEnd) ";
+
+    String FULL_TEXT_FILTER = "WHERE e.state = 'PUBLISHED' " +
+            "AND e.search_vector @@ to_tsquery('simple', :query) " +
+            "AND (:allCategories = TRUE OR e.category_id IN (:categories)) " +
+            "AND (CAST(:paid AS boolean) IS NULL OR e.paid = CAST(:paid AS boolean)) " +
+            "AND (CAST(:rangeStart AS timestamp) IS NULL OR e.event_date >= CAST(:rangeStart AS timestamp)) " +
+            "AND (CAST(:rangeEnd AS timestamp) IS NULL OR e.event_date <= CAST(:rangeEnd AS timestamp)) ";
+
+    @Override
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    Optional<Event> findById(Long eventId);
+
+    @Override
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    List<Event> findAllById(Iterable<Long> eventIds);
+
+    @Query(value = SHORT_VIEW_SELECT + "WHERE e.initiator.id = :userId",
+            countQuery = "SELECT COUNT(e) FROM Event e WHERE e.initiator.id = :userId")
+    Page<EventShortView> findAllByInitiatorId(@Param("userId") Long userId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    Optional<Event> findByIdAndInitiatorId(Long eventId, Long userId);
+
+    @Query(SHORT_VIEW_SELECT +
+            "WHERE e.initiator.id = :userId " +
+            KEYSET_ORDER)
+    List<EventShortView> findAllByInitiatorIdFromStart(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(SHORT_VIEW_SELECT +
+            "WHERE e.initiator.id = :userId " +
+            KEYSET_AFTER +
+            KEYSET_ORDER)
+    List<EventShortView> findAllByInitiatorIdAfter(@Param("userId") Long userId,
+                                                   @Param("afterDate") LocalDateTime afterDate,
+                                                   @Param("afterId") Long afterId,
+                                                   Pageable pageable);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Event e SET e.confirmedRequests = e.confirmedRequests + :count " +
+            "WHERE e.id = :eventId " +
+            "AND (e.participantLimit = 0 OR e.confirmedRequests + :count <= e.participantLimit)")
+    int incrementConfirmedRequests(@Param("eventId") Long eventId, @Param("count") long count);
+
+    @Query("SELECT e.id FROM Event e " +
+            "WHERE e.state = 'PUBLISHED' AND e.id > :afterId " +
+            "ORDER BY e.id")
+    List<Long> findPublishedIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT e.id AS eventId, e.confirmedRequests AS count FROM Event e " +
+            "WHERE e.id > :afterId " +
+            "ORDER BY e.id")
+    List<EventRequestCount> findConfirmedRequestsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Счётчик переписывается, только если не менялся после чтения: подтверждение, прошедшее между чтением
+    // счётчика и подсчётом заявок, не затирается и будет сверено при следующем проходе
+    @Modifying
+    @Query("UPDATE Event e SET e.confirmedRequests = :actual " +
+            "WHERE e.id = :eventId AND e.confirmedRequests = :expected")
+    int resetConfirmedRequests(@Param("eventId") Long eventId,
+                               @Param("expected") Long expected,
+                               @Param("actual") Long actual);
+
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    @Query("SELECT e FROM Event e " +
+            ADMIN_FILTER)
     Page<Event> findEventsByAdminFilters(@Param("users") List<Long> users,
                                          @Param("states") List<EventState> states,
                                          @Param("categories") List<Long> categories,
@@ -30,19 +123,121 @@ public interface EventRepository extends JpaRepository<Event, Long> {
                                          @Param("rangeEnd") LocalDateTime rangeEnd,
                                          Pageable pageable);
 
+    @EntityGraph(attributePaths = {"category", "initiator"})
     @Query("SELECT e FROM Event e " +
-            "WHERE e.state = 'PUBLISHED' " +
-            "AND (CAST(:text AS string) IS NULL OR (LOWER(e.annotation) LIKE LOWER(CONCAT('%', CAST(:text AS string), '%')) " +
-            "OR LOWER(e.description) LIKE LOWER(CONCAT('%', CAST(:text AS string), '%')))) " +
-            "AND (:categories IS NULL OR e.category.id IN :categories) " +
-            "AND (:paid IS NULL OR e.paid = :paid) " +
-            "AND (CAST(:rangeStart AS timestamp) IS NULL OR e.eventDate >= :rangeStart) " +
-            "AND (CAST(:rangeEnd AS timestamp) IS NULL OR e.eventDate <= :rangeEnd)")
-    Page<Event> findEventsByPublicFilters(
+            ADMIN_FILTER +
+            KEYSET_ORDER)
+    List<Event> findEventsByAdminFiltersFromStart(@Param("users") List<Long> users,
+                                                  @Param("states") List<EventState> states,
+                                                  @Param("categories") List<Long> categories,
+                                                  @Param("rangeStart") LocalDateTime rangeStart,
+                                                  @Param("rangeEnd") LocalDateTime rangeEnd,
+                                                  Pageable pageable);
+
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    @Query("SELECT e FROM Event e " +
+            ADMIN_FILTER +
+            KEYSET_AFTER +
+            KEYSET_ORDER)
+    List<Event> findEventsByAdminFiltersAfter(@Param("users") List<Long> users,
+                                              @Param("states") List<EventState> states,
+                                              @Param("categories") List<Long> categories,
+                                              @Param("rangeStart") LocalDateTime rangeStart,
+                                              @Param("rangeEnd") LocalDateTime rangeEnd,
+                                              @Param("afterDate") LocalDateTime afterDate,
+                                              @Param("afterId") Long afterId,
+                                              Pageable pageable);
+
+    @Query(value = SHORT_VIEW_SELECT +
+            PUBLIC_FILTER,
+            countQuery = "SELECT COUNT(e) FROM Event e " +
+                    PUBLIC_FILTER)
+    Page<EventShortView> findEventsByPublicFilters(
             @Param("text") String text,
             @Param("categories") List<Long> categories,
             @Param("paid") Boolean paid,
             @Param("rangeStart") LocalDateTime rangeStart,
             @Param("rangeEnd") LocalDateTime rangeEnd,
             Pageable pageable);
-}
\ No newline at end of file
+
+    @Query(SHORT_VIEW_SELECT +
+            PUBLIC_FILTER +
+            KEYSET_ORDER)
+    List<EventShortView> findEventsByPublicFiltersFromStart(
+            @Param("text") String text,
+            @Param("categories") List<Long> categories,
+            @Param("paid") Boolean paid,
+            @Param("rangeStart") LocalDateTime rangeStart,
+            @Param("rangeEnd") LocalDateTime rangeEnd,
+            Pageable pageable);
+
+    @Query(SHORT_VIEW_SELECT +
+            PUBLIC_FILTER +
+            KEYSET_AFTER +
+            KEYSET_ORDER)
+    List<EventShortView> findEventsByPublicFiltersAfter(
+            @Param("text") String text,
+            @Param("categories") List<Long> categories,
+            @Param("paid") Boolean paid,
+            @Param("rangeStart") LocalDateTime rangeStart,
+            @Param("rangeEnd") LocalDateTime rangeEnd,
+            @Param("afterDate") LocalDateTime afterDate,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    // Полнотекстовый поиск (PostgreSQL): events.search_vector с GIN-индексом, см. schema-fulltext.sql
+    @Query(value = SHORT_VIEW_NATIVE_SELECT +
+            ", ts_rank(e.search_vector, to_tsquery('simple', :query)) AS rank" +
+            SHORT_VIEW_NATIVE_FROM +
+            "WHERE e.state = 'PUBLISHED' " +
+            "AND e.search_vector @@ to_tsquery('simple', :query) " +
+            "AND (:allCategories = TRUE OR e.category_id IN (:categories)) " +
+            "AND (CAST(:paid AS boolean) IS NULL OR e.paid = CAST(:paid AS boolean)) " +
+            "AND (CAST(:rangeStart AS timestamp) IS NULL OR e.event_date >= CAST(:rangeStart AS timestamp)) " +
+            "AND (CAST(:rangeEnd AS timestamp) IS NULL OR e.event_date <= CAST(:rangeEnd AS timestamp))",
+            countQuery = "SELECT COUNT(*) FROM events e " +
+                    "WHERE e.state = 'PUBLISHED' " +
+                    "AND e.search_vector @@ to_tsquery('simple', :query) " +
+                    "AND (:allCategories = TRUE OR e.category_id IN (:categories)) " +
+                    "AND (CAST(:paid AS boolean) IS NULL OR e.paid = CAST(:paid AS boolean)) " +
+                    "AND (CAST(:rangeStart AS timestamp) IS NULL OR e.event_date >= CAST(:rangeStart AS timestamp)) " +
+                    "AND (CAST(:rangeEnd AS timestamp) IS NULL OR e.event_date <= CAST(:rangeEnd AS timestamp))",
+            nativeQuery = true)
+    Page<EventShortView> findEventsByFullText(
+            @Param("query") String query,
+            @Param("allCategories") boolean allCategories,
+            @Param("categories") List<Long> categories,
+            @Param("paid") Boolean paid,
+            @Param("rangeStart") LocalDateTime rangeStart,
+            @Param("rangeEnd") LocalDateTime rangeEnd,
+            Pageable pageable);
+
+    @Query(value = SHORT_VIEW_NATIVE_SELECT + SHORT_VIEW_NATIVE_FROM +
+            FULL_TEXT_FILTER +
+            "ORDER BY e.event_date, e.id",
+            nativeQuery = true)
+    List<EventShortView> findEventsByFullTextFromStart(
+            @Param("query") String query,
+            @Param("allCategories") boolean allCategories,
+            @Param("categories") List<Long> categories,
+            @Param("paid") Boolean paid,
+            @Param("rangeStart") LocalDateTime rangeStart,
+            @Param("rangeEnd") LocalDateTime rangeEnd,
+            Pageable pageable);
+
+    @Query(value = SHORT_VIEW_NATIVE_SELECT + SHORT_VIEW_NATIVE_FROM +
+            FULL_TEXT_FILTER +
+            "AND (e.event_date, e.id) > (CAST(:afterDate AS timestamp), CAST(:afterId AS bigint)) " +
+            "ORDER BY e.event_date, e.id",
+            nativeQuery = true)
+    List<EventShortView> findEventsByFullTextAfter(
+            @Param("query") String query,
+            @Param("allCategories") boolean allCategories,
+            @Param("categories") List<Long> categories,
+            @Param("paid") Boolean paid,
+            @Param("rangeStart") LocalDateTime rangeStart,
+            @Param("rangeEnd") LocalDateTime rangeEnd,
+            @Param("afterDate") LocalDateTime afterDate,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+}
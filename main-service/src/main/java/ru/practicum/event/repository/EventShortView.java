@@ -0,0 +1,26 @@
+package ru.practicum.event.repository;
+
+import java.time.LocalDateTime;
+
+// Только колонки EventShortDto: без description и прочих тяжёлых полей, сущности не попадают в persistence context
+public interface EventShortView {
+    Long getId();
+
+    String getAnnotation();
+
+    Long getCategoryId();
+
+    String getCategoryName();
+
+    Long getConfirmedRequests();
+
+    LocalDateTime getEventDate();
+
+    Long getInitiatorId();
+
+    String getInitiatorName();
+
+    Boolean getPaid();
+
+    String getTitle();
+}
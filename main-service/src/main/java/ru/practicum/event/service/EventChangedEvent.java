@@ -0,0 +1,4 @@
+package ru.practicum.event.service;
+
+public record EventChangedEvent(Long eventId) {
+}
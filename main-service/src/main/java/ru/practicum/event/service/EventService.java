@@ -9,6 +9,8 @@ import java.util.List;
 public interface EventService {
     List<EventShortDto> getEvents(Long userId, Pageable pageable);
 
+    CursorPage<EventShortDto> getEventsByCursor(Long userId, PageParams pageParams);
+
     EventFullDto postEvent(Long userId, NewEventDto newEventDto);
 
     EventFullDto getEvent(Long userId, Long eventId);
@@ -17,10 +19,14 @@ public interface EventService {
 
     List<EventFullDto> getEventsByAdminFilters(EventParams params);
 
+    CursorPage<EventFullDto> getEventsByAdminFiltersByCursor(EventParams params);
+
     EventFullDto patchEventByAdmin(Long eventId, UpdateEventAdminRequest updateEventAdminRequest);
 
     List<EventShortDto> getEventsByPublicFilters(PublicEventParams params, HttpServletRequest request);
 
+    CursorPage<EventShortDto> getEventsByPublicFiltersByCursor(PublicEventParams params);
+
     EventFullDto getEventById(Long eventId, HttpServletRequest request);
 
     void saveStats(HttpServletRequest request);
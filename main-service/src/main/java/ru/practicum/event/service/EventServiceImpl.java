@@ -3,6 +3,8 @@ package ru.practicum.event.service;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -11,9 +13,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.category.model.Category;
 import ru.practicum.category.repository.CategoryRepository;
+import ru.practicum.category.service.CategoryCache;
 import ru.practicum.client.StatClient;
 import ru.practicum.dto.NewEndpointHitDto;
-import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.event.dto.*;
 import ru.practicum.event.mapper.EventMapper;
 import ru.practicum.event.model.Event;
@@ -21,16 +23,16 @@ import ru.practicum.event.model.EventState;
 import ru.practicum.event.model.StateActionAdmin;
 import ru.practicum.event.model.StateActionUser;
 import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.repository.EventShortView;
 import ru.practicum.handler.exception.BadRequestException;
 import ru.practicum.handler.exception.ConflictException;
 import ru.practicum.handler.exception.NotFoundException;
-import ru.practicum.request.model.RequestState;
-import ru.practicum.request.repository.RequestRepository;
 import ru.practicum.user.model.User;
 import ru.practicum.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -38,25 +40,39 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class EventServiceImpl implements EventService {
+    private static final String EVENTS_URI = "/events/";
+
     private final EventRepository eventRepository;
     private final CategoryRepository categoryRepository;
+    private final CategoryCache categoryCache;
     private final UserRepository userRepository;
-    private final RequestRepository requestRepository;
     private final EventMapper eventMapper;
     private final StatClient statClient;
+    private final EventViewsCache viewsCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${events.search.full-text:false}")
+    private boolean fullTextSearch;
 
     @Override
     public List<EventShortDto> getEvents(Long userId, Pageable pageable) {
         checkUserExists(userId);
-        Page<Event> events = eventRepository.findAllByInitiatorId(userId, pageable);
-
-        return events.getContent().stream()
-                .map(event -> {
-                    Long views = getViews(event.getId());
-                    Long confirmed = requestRepository.countByEventIdAndStatus(event.getId(), RequestState.CONFIRMED);
-                    return eventMapper.toEventShortDto(event, views, confirmed);
-                })
-                .collect(Collectors.toList());
+        Page<EventShortView> events = eventRepository.findAllByInitiatorId(userId, pageable);
+
+        return toShortDtos(events.getContent());
+    }
+
+    @Override
+    public CursorPage<EventShortDto> getEventsByCursor(Long userId, PageParams pageParams) {
+        checkUserExists(userId);
+        EventCursor cursor = EventCursor.decode(pageParams.getCursor());
+
+        List<EventShortView> events = cursor.isStart()
+                ? eventRepository.findAllByInitiatorIdFromStart(userId, nextPageRequest(pageParams))
+                : eventRepository.findAllByInitiatorIdAfter(userId, cursor.getEventDate(), cursor.getId(),
+                nextPageRequest(pageParams));
+
+        return toCursorPage(events, pageParams.getSize(), EventCursor::after, this::toShortDtos);
     }
 
     @Override
@@ -79,8 +95,8 @@ public class EventServiceImpl implements EventService {
         Event event = eventRepository.findByIdAndInitiatorId(eventId, userId)
                 .orElseThrow(() -> new NotFoundException("Event not found or not accessible"));
 
-        return eventMapper.toEventFullDto(event, getViews(eventId),
-                requestRepository.countByEventIdAndStatus(eventId, RequestState.CONFIRMED));
+        return eventMapper.toEventFullDto(event, viewsCache.getViews(eventId),
+                event.getConfirmedRequests());
     }
 
     @Override
@@ -113,8 +129,11 @@ public class EventServiceImpl implements EventService {
             }
         }
 
-        return eventMapper.toEventFullDto(eventRepository.save(event), getViews(eventId),
-                requestRepository.countByEventIdAndStatus(eventId, RequestState.CONFIRMED));
+        Event savedEvent = eventRepository.save(event);
+        eventPublisher.publishEvent(new EventChangedEvent(eventId));
+
+        return eventMapper.toEventFullDto(savedEvent, viewsCache.getViews(eventId),
+                savedEvent.getConfirmedRequests());
     }
 
     @Override
@@ -126,10 +145,23 @@ public class EventServiceImpl implements EventService {
                 params.getUsers(), params.getStates(), params.getCategories(),
                 params.getRangeStart(), params.getRangeEnd(), pageable);
 
-        return events.stream()
-                .map(event -> eventMapper.toEventFullDto(event, getViews(event.getId()),
-                        requestRepository.countByEventIdAndStatus(event.getId(), RequestState.CONFIRMED)))
-                .collect(Collectors.toList());
+        return toFullDtos(events.getContent());
+    }
+
+    @Override
+    public CursorPage<EventFullDto> getEventsByAdminFiltersByCursor(EventParams params) {
+        EventCursor cursor = EventCursor.decode(params.getPageParams().getCursor());
+
+        List<Event> events = cursor.isStart()
+                ? eventRepository.findEventsByAdminFiltersFromStart(
+                params.getUsers(), params.getStates(), params.getCategories(),
+                params.getRangeStart(), params.getRangeEnd(), nextPageRequest(params.getPageParams()))
+                : eventRepository.findEventsByAdminFiltersAfter(
+                params.getUsers(), params.getStates(), params.getCategories(),
+                params.getRangeStart(), params.getRangeEnd(),
+                cursor.getEventDate(), cursor.getId(), nextPageRequest(params.getPageParams()));
+
+        return toCursorPage(events, params.getPageParams().getSize(), EventCursor::after, this::toFullDtos);
     }
 
     @Override
@@ -167,8 +199,11 @@ public class EventServiceImpl implements EventService {
                 updateRequest.getPaid(), updateRequest.getParticipantLimit(),
                 updateRequest.getRequestModeration(), updateRequest.getTitle());
 
-        return eventMapper.toEventFullDto(eventRepository.save(event), getViews(eventId),
-                requestRepository.countByEventIdAndStatus(eventId, RequestState.CONFIRMED));
+        Event savedEvent = eventRepository.save(event);
+        eventPublisher.publishEvent(new EventChangedEvent(eventId));
+
+        return eventMapper.toEventFullDto(savedEvent, viewsCache.getViews(eventId),
+                savedEvent.getConfirmedRequests());
     }
 
     @Override
@@ -183,32 +218,46 @@ public class EventServiceImpl implements EventService {
         String text = (params.getText() != null && !params.getText().isBlank())
                 ? params.getText() : null;
 
-        int pageNum = params.getPageParams().getFrom() / params.getPageParams().getSize();
-        Pageable pageable = PageRequest.of(pageNum, params.getPageParams().getSize(),
-                Sort.by(Sort.Direction.ASC, "eventDate"));
+        String fullTextQuery = fullTextSearch && text != null ? toFullTextQuery(text) : null;
+
+        // Просмотры синхронизируются в events.views, поэтому сортировка по ним выполняется в БД
+        Sort sort;
 
         if ("VIEWS".equals(params.getSort())) {
-            return getEventsSortedByViews(params, start);
+            sort = Sort.by(Sort.Direction.DESC, "views").and(Sort.by(Sort.Direction.ASC, "id"));
+        } else if ("RELEVANCE".equals(params.getSort()) && fullTextQuery != null) {
+            sort = Sort.by(Sort.Direction.DESC, "rank").and(Sort.by(Sort.Direction.ASC, "id"));
+        } else {
+            sort = Sort.by(Sort.Direction.ASC, fullTextQuery != null ? "event_date" : "eventDate");
         }
 
-        try {
-            Page<Event> eventsPage = eventRepository.findEventsByPublicFilters(
-                    text,
-                    params.getCategories(),
-                    params.getPaid(),
-                    start,
-                    end,
-                    pageable);
+        int pageNum = params.getPageParams().getFrom() / params.getPageParams().getSize();
+        Pageable pageable = PageRequest.of(pageNum, params.getPageParams().getSize(), sort);
 
-            List<Event> events = eventsPage.getContent();
-            Map<Long, Long> viewsMap = getEventsViews(events);
+        try {
+            Page<EventShortView> eventsPage;
+
+            if (fullTextQuery != null) {
+                boolean allCategories = params.getCategories() == null || params.getCategories().isEmpty();
+                eventsPage = eventRepository.findEventsByFullText(
+                        fullTextQuery,
+                        allCategories,
+                        allCategories ? List.of(0L) : params.getCategories(),
+                        params.getPaid(),
+                        start,
+                        end,
+                        pageable);
+            } else {
+                eventsPage = eventRepository.findEventsByPublicFilters(
+                        text,
+                        params.getCategories(),
+                        params.getPaid(),
+                        start,
+                        end,
+                        pageable);
+            }
 
-            return events.stream()
-                    .map(event -> {
-                        Long confirmed = getConfirmedRequests(event.getId());
-                        return eventMapper.toEventShortDto(event, viewsMap.getOrDefault(event.getId(), 0L), confirmed);
-                    })
-                    .collect(Collectors.toList());
+            return toShortDtos(eventsPage.getContent());
 
         } catch (Exception e) {
             log.error("Error in public filters: {}", e.getMessage());
@@ -216,24 +265,71 @@ public class EventServiceImpl implements EventService {
         }
     }
 
-    private List<EventShortDto> getEventsSortedByViews(PublicEventParams params, LocalDateTime rangeStart) {
-        Pageable allRecords = PageRequest.of(0, Integer.MAX_VALUE);
+    @Override
+    public CursorPage<EventShortDto> getEventsByPublicFiltersByCursor(PublicEventParams params) {
+        // Курсор хранит позицию в порядке (eventDate, id), другие сортировки через него не листаются
+        if (params.getSort() != null && !"EVENT_DATE".equals(params.getSort())) {
+            throw new BadRequestException("Cursor pagination supports only EVENT_DATE sort");
+        }
+
+        LocalDateTime start = params.getRangeStart();
+        LocalDateTime end = params.getRangeEnd();
 
-        Page<Event> eventsPage = eventRepository.findEventsByPublicFilters(
-                params.getText(), params.getCategories(), params.getPaid(),
-                rangeStart, params.getRangeEnd(), allRecords);
+        if (start == null && end == null) {
+            start = LocalDateTime.now();
+        }
 
-        List<Event> events = eventsPage.getContent();
-        Map<Long, Long> viewsMap = getEventsViews(events);
+        String text = (params.getText() != null && !params.getText().isBlank())
+                ? params.getText() : null;
 
-        return events.stream()
-                .map(event -> eventMapper.toEventShortDto(event,
-                        viewsMap.getOrDefault(event.getId(), 0L),
-                        getConfirmedRequests(event.getId())))
-                .sorted(Comparator.comparing(EventShortDto::getViews).reversed())
-                .skip(params.getPageParams().getFrom())
-                .limit(params.getPageParams().getSize())
-                .collect(Collectors.toList());
+        String fullTextQuery = fullTextSearch && text != null ? toFullTextQuery(text) : null;
+        EventCursor cursor = EventCursor.decode(params.getPageParams().getCursor());
+        Pageable pageable = nextPageRequest(params.getPageParams());
+        List<EventShortView> events;
+
+        if (fullTextQuery != null) {
+            boolean allCategories = params.getCategories() == null || params.getCategories().isEmpty();
+            List<Long> categories = allCategories ? List.of(0L) : params.getCategories();
+            events = cursor.isStart()
+                    ? eventRepository.findEventsByFullTextFromStart(
+                    fullTextQuery,
+                    allCategories,
+                    categories,
+                    params.getPaid(),
+                    start,
+                    end,
+                    pageable)
+                    : eventRepository.findEventsByFullTextAfter(
+                    fullTextQuery,
+                    allCategories,
+                    categories,
+                    params.getPaid(),
+                    start,
+                    end,
+                    cursor.getEventDate(),
+                    cursor.getId(),
+                    pageable);
+        } else {
+            events = cursor.isStart()
+                    ? eventRepository.findEventsByPublicFiltersFromStart(
+                    text,
+                    params.getCategories(),
+                    params.getPaid(),
+                    start,
+                    end,
+                    pageable)
+                    : eventRepository.findEventsByPublicFiltersAfter(
+                    text,
+                    params.getCategories(),
+                    params.getPaid(),
+                    start,
+                    end,
+                    cursor.getEventDate(),
+                    cursor.getId(),
+                    pageable);
+        }
+
+        return toCursorPage(events, params.getPageParams().getSize(), EventCursor::after, this::toShortDtos);
     }
 
     @Override
@@ -245,8 +341,8 @@ public class EventServiceImpl implements EventService {
             throw new NotFoundException("Event must be published");
         }
 
-        return eventMapper.toEventFullDto(event, getViews(eventId),
-                requestRepository.countByEventIdAndStatus(eventId, RequestState.CONFIRMED));
+        return eventMapper.toEventFullDto(event, viewsCache.getViews(eventId),
+                event.getConfirmedRequests());
     }
 
     @Override
@@ -258,49 +354,54 @@ public class EventServiceImpl implements EventService {
                     request.getRemoteAddr(),
                     LocalDateTime.now()
             ));
+            recordView(request.getRequestURI(), request.getRemoteAddr());
         } catch (Exception e) {
             log.error("Ошибка при сохранении статистики: {}", e.getMessage());
         }
     }
 
-    private Long getViews(Long eventId) {
-        Event event = new Event();
-        event.setId(eventId);
-
-        Map<Long, Long> map = getViewsBatch(List.of(event));
+    // Просмотр страницы события с нового IP сразу учитывается в кэше; сброс кэша на каждый просмотр превращал
+    // самые популярные страницы в постоянный промах
+    private void recordView(String uri, String ip) {
+        if (uri.startsWith(EVENTS_URI) && uri.indexOf("/", EVENTS_URI.length()) < 0) {
+            try {
+                viewsCache.recordView(Long.parseLong(uri.substring(EVENTS_URI.length())), ip);
+            } catch (NumberFormatException e) {
+                log.warn("Failed to parse event ID from URI: {}", uri);
+            }
+        }
+    }
 
-        return map.getOrDefault(eventId, 0L);
+    // Запрашивается на одну строку больше страницы: по ней видно, есть ли продолжение, без COUNT
+    private Pageable nextPageRequest(PageParams pageParams) {
+        return PageRequest.of(0, pageParams.getSize() + 1);
     }
 
-    private Map<Long, Long> getViewsBatch(List<Event> events) {
-        if (events.isEmpty()) return Collections.emptyMap();
+    private <R, T> CursorPage<T> toCursorPage(List<R> rows, int size, Function<R, EventCursor> position,
+                                              Function<List<R>, List<T>> mapper) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(mapper.apply(rows), null);
+        }
 
-        List<String> uris = events.stream()
-                .map(e -> "/events/" + e.getId())
-                .collect(Collectors.toList());
+        List<R> page = rows.subList(0, size);
+        return new CursorPage<>(mapper.apply(page), position.apply(page.get(size - 1)).encode());
+    }
 
-        LocalDateTime start = LocalDateTime.of(2000, 1, 1, 0, 0);
-        LocalDateTime end = LocalDateTime.now().plusYears(100);
+    private List<EventShortDto> toShortDtos(List<EventShortView> events) {
+        Map<Long, Long> viewsMap = viewsCache.getViews(events.stream().map(EventShortView::getId).toList());
 
-        try {
-            List<ViewStatsDto> stats = statClient.getStats(start, end, uris, true);
-            Map<Long, Long> result = new HashMap<>();
+        return events.stream()
+                .map(event -> eventMapper.toEventShortDto(event, viewsMap.getOrDefault(event.getId(), 0L)))
+                .collect(Collectors.toList());
+    }
 
-            for (ViewStatsDto dto : stats) {
-                String uri = dto.getUri();
+    private List<EventFullDto> toFullDtos(List<Event> events) {
+        Map<Long, Long> viewsMap = viewsCache.getViews(events.stream().map(Event::getId).toList());
 
-                try {
-                    Long id = Long.parseLong(uri.substring(uri.lastIndexOf("/") + 1));
-                    result.put(id, dto.getHits());
-                } catch (NumberFormatException e) {
-                    log.warn("Failed to parse event ID from URI: {}", uri);
-                }
-            }
-            return result;
-        } catch (Exception e) {
-            log.error("Error calling Stat Client", e);
-            return Collections.emptyMap();
-        }
+        return events.stream()
+                .map(event -> eventMapper.toEventFullDto(event, viewsMap.getOrDefault(event.getId(), 0L),
+                        event.getConfirmedRequests()))
+                .collect(Collectors.toList());
     }
 
     private void updateEventFields(Event event, String annotation, Long categoryId,
@@ -336,7 +437,12 @@ public class EventServiceImpl implements EventService {
 
     private Category checkCategoryExists(Long catId) {
 
-        return categoryRepository.findById(catId).orElseThrow(() -> new NotFoundException("Category " + catId + " not found"));
+        if (!categoryCache.exists(catId)) {
+            throw new NotFoundException("Category " + catId + " not found");
+        }
+
+        // Существование проверено по кэшу, для связи достаточно ссылки без SELECT
+        return categoryRepository.getReferenceById(catId);
     }
 
     private Event checkEventExists(Long eventId) {
@@ -344,46 +450,20 @@ public class EventServiceImpl implements EventService {
         return eventRepository.findById(eventId).orElseThrow(() -> new NotFoundException("Event " + eventId + " not found"));
     }
 
-    private void validateEventDate(LocalDateTime eventDate, int hours) {
+    // Каждое слово ищется как префикс: "рок концерт" -> "рок:* & концерт:*"
+    private String toFullTextQuery(String text) {
+        String query = Arrays.stream(text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isBlank())
+                .map(word -> word + ":*")
+                .collect(Collectors.joining(" & "));
 
-        if (eventDate != null && eventDate.isBefore(LocalDateTime.now().plusHours(hours))) {
-            throw new BadRequestException("Event date too early");
-        }
+        return query.isEmpty() ? null : query;
     }
 
-    private Map<Long, Long> getEventsViews(List<Event> events) {
-        if (events.isEmpty()) return Collections.emptyMap();
-
-        List<String> uris = events.stream()
-                .map(event -> "/events/" + event.getId())
-                .collect(Collectors.toList());
-
-        try {
-            List<ViewStatsDto> stats = statClient.getStats(
-                    LocalDateTime.now().minusYears(10), // Берем большой интервал
-                    LocalDateTime.now().plusYears(1),
-                    uris,
-                    true);
-
-            return stats.stream()
-                    .filter(s -> s.getUri().contains("/events/"))
-                    .collect(Collectors.toMap(
-                            s -> Long.parseLong(s.getUri().substring(s.getUri().lastIndexOf("/") + 1)),
-                            ViewStatsDto::getHits,
-                            (existing, replacement) -> existing
-                    ));
-        } catch (Exception e) {
-            log.warn("Не удалось получить статистику просмотров: {}", e.getMessage());
-            return Collections.emptyMap(); // Возвращаем пустую карту вместо ошибки
-        }
-    }
+    private void validateEventDate(LocalDateTime eventDate, int hours) {
 
-    private Long getConfirmedRequests(Long eventId) {
-        try {
-            return requestRepository.countByEventIdAndStatus(eventId, RequestState.CONFIRMED);
-        } catch (Exception e) {
-            log.error("Ошибка при подсчете заявок для события {}: {}", eventId, e.getMessage());
-            return 0L;
+        if (eventDate != null && eventDate.isBefore(LocalDateTime.now().plusHours(hours))) {
+            throw new BadRequestException("Event date too early");
         }
     }
-}
\ No newline at end of file
+}
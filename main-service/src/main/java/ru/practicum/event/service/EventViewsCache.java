@@ -0,0 +1,224 @@
+package ru.practicum.event.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.client.StatClient;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Кэш уникальных просмотров событий. Свежие значения отдаются из памяти, устаревшие (но не старше
+ * ttl + stale-ttl) тоже отдаются сразу, а обновляются в фоне. Промахи загружаются одним запросом к stats-service.
+ * Просмотр страницы события с нового IP увеличивает закэшированное значение на месте, не дожидаясь stats-service.
+ */
+@Slf4j
+@Component
+public class EventViewsCache {
+    private static final LocalDateTime STATS_START = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final String EVENTS_RESOURCE = "events";
+    private static final int MAX_LOCAL_VIEWERS = 256;
+
+    private final StatClient statClient;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final Map<Long, Entry> entries;
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "event-views-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public EventViewsCache(StatClient statClient,
+                           @Value("${stats.views-cache.max-size:10000}") int maxSize,
+                           @Value("${stats.views-cache.ttl:30s}") Duration ttl,
+                           @Value("${stats.views-cache.stale-ttl:5m}") Duration staleTtl) {
+        this.statClient = statClient;
+        this.ttlNanos = ttl.toNanos();
+        this.staleNanos = ttl.plus(staleTtl).toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public Long getViews(Long eventId) {
+        return getViews(List.of(eventId)).getOrDefault(eventId, 0L);
+    }
+
+    public Map<Long, Long> getViews(Collection<Long> eventIds) {
+        Map<Long, Long> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        List<Long> stale = new ArrayList<>();
+        long now = System.nanoTime();
+
+        synchronized (entries) {
+            for (Long eventId : eventIds) {
+                Entry entry = entries.get(eventId);
+                long age = entry == null ? Long.MAX_VALUE : now - entry.loadedAt();
+
+                if (age > staleNanos) {
+                    missing.add(eventId);
+                } else {
+                    result.put(eventId, entry.views());
+
+                    if (age > ttlNanos) {
+                        stale.add(eventId);
+                    }
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            result.putAll(load(missing));
+        }
+
+        if (!stale.isEmpty()) {
+            refreshAsync(stale);
+        }
+
+        return result;
+    }
+
+    // Свежие значения для синхронизации: обновляются только уже закэшированные события, чтобы проход по
+    // большому числу событий не вытеснял из кэша действительно популярные. Ошибка stats-service пробрасывается
+    public Map<Long, Long> refresh(Collection<Long> eventIds) {
+        Map<Long, Long> versions = versions(eventIds);
+        Map<Long, Long> views = fetch(eventIds);
+        store(views, versions, false);
+        return views;
+    }
+
+    // Повторный просмотр с уже учтённого здесь IP число уникальных просмотров не меняет
+    public void recordView(Long eventId, String ip) {
+        synchronized (entries) {
+            Entry entry = entries.get(eventId);
+
+            if (entry == null || entry.viewers().size() >= MAX_LOCAL_VIEWERS || entry.viewers().contains(ip)) {
+                return;
+            }
+
+            Set<String> viewers = new HashSet<>(entry.viewers());
+            viewers.add(ip);
+            entries.put(eventId, new Entry(entry.views() + 1, entry.loadedAt(), entry.version() + 1, viewers));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private Map<Long, Long> load(Collection<Long> eventIds) {
+        Map<Long, Long> versions = versions(eventIds);
+        Map<Long, Long> views;
+
+        try {
+            views = fetch(eventIds);
+        } catch (Exception e) {
+            log.warn("Не удалось получить статистику просмотров: {}", e.getMessage());
+            return fallback(eventIds);
+        }
+
+        store(views, versions, true);
+        return views;
+    }
+
+    private Map<Long, Long> versions(Collection<Long> eventIds) {
+        Map<Long, Long> versions = new HashMap<>();
+
+        synchronized (entries) {
+            for (Long eventId : eventIds) {
+                Entry entry = entries.get(eventId);
+                versions.put(eventId, entry == null ? -1L : entry.version());
+            }
+        }
+
+        return versions;
+    }
+
+    private Map<Long, Long> fetch(Collection<Long> eventIds) {
+        Map<Long, Long> views = new HashMap<>(statClient.getResourceStats(EVENTS_RESOURCE, eventIds, STATS_START,
+                LocalDateTime.now().plusYears(100), true));
+
+        for (Long eventId : eventIds) {
+            views.putIfAbsent(eventId, 0L);
+        }
+
+        return views;
+    }
+
+    // Значение, изменившееся, пока шёл запрос, не перезаписывается: ответ мог быть собран до этого изменения
+    private void store(Map<Long, Long> views, Map<Long, Long> versions, boolean insertMissing) {
+        long now = System.nanoTime();
+
+        synchronized (entries) {
+            for (Map.Entry<Long, Long> loaded : views.entrySet()) {
+                Entry entry = entries.get(loaded.getKey());
+                long version = entry == null ? -1L : entry.version();
+
+                if (version != versions.get(loaded.getKey())) {
+                    if (entry != null) {
+                        loaded.setValue(entry.views());
+                    }
+                } else if (entry != null || insertMissing) {
+                    entries.put(loaded.getKey(), new Entry(loaded.getValue(), now, version + 1,
+                            entry != null ? entry.viewers() : Set.of()));
+                }
+            }
+        }
+    }
+
+    // Пока stats-service недоступен, отдаются последние известные значения, даже устаревшие; для остальных - 0
+    private Map<Long, Long> fallback(Collection<Long> eventIds) {
+        Map<Long, Long> views = new HashMap<>();
+
+        synchronized (entries) {
+            for (Long eventId : eventIds) {
+                Entry entry = entries.get(eventId);
+
+                if (entry != null) {
+                    views.put(eventId, entry.views());
+                }
+            }
+        }
+
+        return views;
+    }
+
+    private void refreshAsync(List<Long> eventIds) {
+        List<Long> toRefresh = eventIds.stream()
+                .filter(refreshing::add)
+                .toList();
+
+        if (toRefresh.isEmpty()) {
+            return;
+        }
+
+        try {
+            refresher.execute(() -> {
+                try {
+                    load(toRefresh);
+                } finally {
+                    toRefresh.forEach(refreshing::remove);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            toRefresh.forEach(refreshing::remove);
+        }
+    }
+
+    // viewers - IP, чьи просмотры уже учтены в views на этом узле; version меняется при каждой записи
+    private record Entry(Long views, long loadedAt, long version, Set<String> viewers) {
+    }
+}
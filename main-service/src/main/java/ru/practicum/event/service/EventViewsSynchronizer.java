@@ -0,0 +1,128 @@
+package ru.practicum.event.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.client.StatClient;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.event.repository.EventRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventViewsSynchronizer {
+    private static final String APP = "main-service";
+    private static final String EVENTS_URI = "/events/";
+
+    private final EventRepository eventRepository;
+    private final EventViewsCache viewsCache;
+    private final StatClient statClient;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${events.views-sync.batch-size:200}")
+    private int batchSize;
+
+    // Хиты доходят до stats-service с задержкой (асинхронная отправка), поэтому окно захватывает часть прошлого
+    @Value("${events.views-sync.overlap:1m}")
+    private Duration overlap;
+
+    @Value("${events.views-sync.max-changed:10000}")
+    private int maxChanged;
+
+    private LocalDateTime lastSync;
+
+    // Переносит просмотры из stats-service в events.views, чтобы сортировка по просмотрам выполнялась в БД.
+    // Первый проход идёт по всему каталогу, дальше - только по событиям, у которых с прошлого прохода были хиты
+    @Scheduled(fixedDelayString = "${events.views-sync.interval:60000}")
+    public void synchronize() {
+        LocalDateTime started = LocalDateTime.now();
+        Collection<Long> changed = lastSync != null ? findChangedEvents(lastSync.minus(overlap), started) : null;
+
+        try {
+            int updated = changed != null ? synchronizeChanged(changed) : synchronizeAll();
+            lastSync = started;
+            log.debug("SYNC event views: changed={}, updated={}", changed != null ? changed.size() : "all", updated);
+        } catch (Exception e) {
+            log.warn("Не удалось синхронизировать просмотры событий: {}", e.getMessage());
+        }
+    }
+
+    // null - изменений слишком много или их не удалось получить, нужен полный проход
+    private Collection<Long> findChangedEvents(LocalDateTime start, LocalDateTime end) {
+        List<ViewStatsDto> stats;
+
+        try {
+            stats = statClient.getTopStats(start, end, APP, EVENTS_URI, maxChanged, false);
+        } catch (Exception e) {
+            log.warn("Не удалось получить изменившиеся события: {}", e.getMessage());
+            return null;
+        }
+
+        if (stats.size() >= maxChanged) {
+            return null;
+        }
+
+        Set<Long> ids = new HashSet<>();
+
+        for (ViewStatsDto stat : stats) {
+            String id = stat.getUri().substring(EVENTS_URI.length());
+
+            if (!id.isEmpty() && id.chars().allMatch(Character::isDigit)) {
+                ids.add(Long.parseLong(id));
+            }
+        }
+
+        return ids;
+    }
+
+    private int synchronizeAll() {
+        long afterId = 0L;
+        int updated = 0;
+
+        while (true) {
+            List<Long> ids = eventRepository.findPublishedIdsAfter(afterId, PageRequest.of(0, batchSize));
+
+            if (ids.isEmpty()) {
+                return updated;
+            }
+
+            updated += updateViews(viewsCache.refresh(ids));
+            afterId = ids.getLast();
+        }
+    }
+
+    private int synchronizeChanged(Collection<Long> eventIds) {
+        List<Long> ids = new ArrayList<>(eventIds);
+        int updated = 0;
+
+        for (int i = 0; i < ids.size(); i += batchSize) {
+            updated += updateViews(viewsCache.refresh(ids.subList(i, Math.min(i + batchSize, ids.size()))));
+        }
+
+        return updated;
+    }
+
+    // Одна пачка UPDATE на порцию событий вместо отдельного запроса на каждое
+    private int updateViews(Map<Long, Long> views) {
+        if (views.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> args = views.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey(), entry.getValue()})
+                .toList();
+
+        return Arrays.stream(jdbcTemplate.batchUpdate("UPDATE events SET views = ? WHERE id = ? AND views <> ?",
+                        args))
+                .map(count -> Math.max(count, 0))
+                .sum();
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.request.repository;
+
+public interface EventRequestCount {
+    Long getEventId();
+
+    Long getCount();
+}
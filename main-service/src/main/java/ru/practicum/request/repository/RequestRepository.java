@@ -1,15 +1,37 @@
 package ru.practicum.request.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.request.model.Request;
 import ru.practicum.request.model.RequestState;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public interface RequestRepository extends JpaRepository<Request, Long> {
     Long countByEventIdAndStatus(Long eventId, RequestState status);
 
+    @Query("SELECT r.event.id AS eventId, COUNT(r) AS count " +
+            "FROM Request r " +
+            "WHERE r.event.id IN :eventIds AND r.status = :status " +
+            "GROUP BY r.event.id")
+    List<EventRequestCount> countByEventIdsAndStatus(@Param("eventIds") Collection<Long> eventIds,
+                                                     @Param("status") RequestState status);
+
+    default Map<Long, Long> countConfirmedByEventIds(Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        return countByEventIdsAndStatus(eventIds, RequestState.CONFIRMED).stream()
+                .collect(Collectors.toMap(EventRequestCount::getEventId, EventRequestCount::getCount));
+    }
+
     List<Request> findByRequesterId(Long requesterId);
 
     List<Request> findByEventId(Long eventId);
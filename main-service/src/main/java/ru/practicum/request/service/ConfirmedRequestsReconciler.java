@@ -0,0 +1,75 @@
+package ru.practicum.request.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.service.EventChangedEvent;
+import ru.practicum.request.repository.EventRequestCount;
+import ru.practicum.request.repository.RequestRepository;
+
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConfirmedRequestsReconciler {
+    private final EventRepository eventRepository;
+    private final RequestRepository requestRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${events.confirmed-requests.reconcile-batch-size:1000}")
+    private int batchSize;
+
+    // Сверяет счётчик events.confirmed_requests с фактическим числом подтверждённых заявок, пачками событий
+    @Scheduled(fixedDelayString = "${events.confirmed-requests.reconcile-interval:3600000}")
+    public void reconcile() {
+        long afterId = 0L;
+        int fixed = 0;
+
+        while (true) {
+            // Сначала читаются счётчики, потом заявки: иначе подтверждение между запросами выглядело бы дрейфом
+            List<EventRequestCount> counters = eventRepository.findConfirmedRequestsAfter(afterId,
+                    PageRequest.of(0, batchSize));
+
+            if (counters.isEmpty()) {
+                break;
+            }
+
+            Integer batchFixed = transactionTemplate.execute(status -> reconcileBatch(counters));
+            fixed += batchFixed != null ? batchFixed : 0;
+            afterId = counters.getLast().getEventId();
+        }
+
+        if (fixed > 0) {
+            log.warn("RECONCILE confirmed requests: fixed {} events", fixed);
+        }
+    }
+
+    private int reconcileBatch(List<EventRequestCount> counters) {
+        Map<Long, Long> actual = requestRepository.countConfirmedByEventIds(counters.stream()
+                .map(EventRequestCount::getEventId)
+                .toList());
+        int fixed = 0;
+
+        for (EventRequestCount counter : counters) {
+            Long count = actual.getOrDefault(counter.getEventId(), 0L);
+
+            if (!count.equals(counter.getCount())) {
+                if (eventRepository.resetConfirmedRequests(counter.getEventId(), counter.getCount(), count) > 0) {
+                    eventPublisher.publishEvent(new EventChangedEvent(counter.getEventId()));
+                    fixed++;
+                }
+            }
+        }
+
+        return fixed;
+    }
+}
@@ -2,11 +2,13 @@ package ru.practicum.request.service;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.event.model.Event;
 import ru.practicum.event.model.EventState;
 import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.service.EventChangedEvent;
 import ru.practicum.handler.exception.ConflictException;
 import ru.practicum.handler.exception.NotFoundException;
 import ru.practicum.request.dto.EventRequestStatusUpdateRequest;
@@ -34,6 +36,7 @@ public class RequestServiceImpl implements RequestService {
     private final EventRepository eventRepository;
     private final RequestRepository requestRepository;
     private final RequestMapper requestMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<ParticipationRequestDto> getRequests(Long userId) {
@@ -59,9 +62,7 @@ public class RequestServiceImpl implements RequestService {
         checkEventInitiator(userId, event);
         checkEventStatus(event);
 
-        long confirmedRequests = requestRepository.countByEventIdAndStatus(eventId, RequestState.CONFIRMED);
-
-        if (event.getParticipantLimit() != 0 && confirmedRequests >= event.getParticipantLimit()) {
+        if (event.getParticipantLimit() != 0 && event.getConfirmedRequests() >= event.getParticipantLimit()) {
             throw new ConflictException("Participant limit reached");
         }
 
@@ -69,6 +70,7 @@ public class RequestServiceImpl implements RequestService {
 
         if (!event.getRequestModeration() || event.getParticipantLimit() == 0) {
             status = RequestState.CONFIRMED;
+            reserveConfirmedRequests(event, 1);
         }
 
         Request request = Request.builder()
@@ -132,7 +134,7 @@ public class RequestServiceImpl implements RequestService {
 
         checkRequestStatusForPatch(requests);
 
-        long confirmedCount = requestRepository.countByEventIdAndStatus(eventId, RequestState.CONFIRMED);
+        long confirmedCount = event.getConfirmedRequests();
         int limit = event.getParticipantLimit();
 
         if (limit != 0 && confirmedCount >= limit) {
@@ -161,6 +163,7 @@ public class RequestServiceImpl implements RequestService {
             }
         }
 
+        reserveConfirmedRequests(event, confirmed.size());
         requestRepository.saveAll(requests);
 
         EventRequestStatusUpdateResult result = new EventRequestStatusUpdateResult();
@@ -170,6 +173,22 @@ public class RequestServiceImpl implements RequestService {
         return result;
     }
 
+    // Условный UPDATE не даст превысить лимит участников даже при параллельных подтверждениях. Загруженное
+    // событие не трогаем: колонка не обновляется через сущность, а новое значение читается из БД.
+    // Число подтверждённых заявок входит в закэшированные представления события, поэтому публикуется изменение
+    private void reserveConfirmedRequests(Event event, long count) {
+        if (count == 0) {
+            return;
+        }
+
+        if (eventRepository.incrementConfirmedRequests(event.getId(), count) == 0) {
+            log.error("Participant limit reached for event ID={} while confirming {} requests", event.getId(), count);
+            throw new ConflictException("The participant limit has been reached. Cannot confirm more requests.");
+        }
+
+        eventPublisher.publishEvent(new EventChangedEvent(event.getId()));
+    }
+
     private User checkUserExists(Long userId) {
         return userRepository.findById(userId)
                 .orElseThrow(() -> {
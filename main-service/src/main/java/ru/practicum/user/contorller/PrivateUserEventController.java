@@ -29,7 +29,16 @@ public class PrivateUserEventController {
     public ResponseEntity<List<EventShortDto>> getEvents(
             @PathVariable Long userId,
             @RequestParam(name = "from", defaultValue = "0") Integer from,
-            @RequestParam(name = "size", defaultValue = "10") Integer size) {
+            @RequestParam(name = "size", defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor) {
+
+        if (cursor != null) {
+            CursorPage<EventShortDto> page = eventService.getEventsByCursor(userId, new PageParams(from, size, cursor));
+
+            return ResponseEntity.ok()
+                    .headers(page.headers())
+                    .body(page.getItems());
+        }
 
         Pageable pageable = PageRequest.of(from / size, size, Sort.by("id").ascending());
 
@@ -28,6 +28,8 @@ CREATE TABLE IF NOT EXISTS events
     lon                FLOAT                                   NOT NULL,
     paid               BOOLEAN                                 NOT NULL,
     participant_limit  INTEGER                                 NOT NULL,
+    confirmed_requests BIGINT      DEFAULT 0                   NOT NULL,
+    views              BIGINT      DEFAULT 0                   NOT NULL,
     published_on       TIMESTAMP WITHOUT TIME ZONE,
     request_moderation BOOLEAN                                 NOT NULL,
     state              VARCHAR(20)                             NOT NULL,
@@ -80,7 +82,13 @@ CREATE TABLE IF NOT EXISTS compilations_events
     CONSTRAINT fk_compevents_to_events FOREIGN KEY (event_id) REFERENCES events (id) ON DELETE SET NULL
 );
 
+ALTER TABLE events ADD COLUMN IF NOT EXISTS confirmed_requests BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE events ADD COLUMN IF NOT EXISTS views BIGINT DEFAULT 0 NOT NULL;
+
 CREATE INDEX IF NOT EXISTS idx_event_state ON events (state);
 CREATE INDEX IF NOT EXISTS idx_event_category ON events (category_id);
 CREATE INDEX IF NOT EXISTS idx_event_initiator ON events (initiator_id);
 CREATE INDEX IF NOT EXISTS idx_event_date ON events (event_date);
+CREATE INDEX IF NOT EXISTS idx_event_views ON events (views);
+CREATE INDEX IF NOT EXISTS idx_event_date_id ON events (event_date, id);
+CREATE INDEX IF NOT EXISTS idx_event_initiator_date_id ON events (initiator_id, event_date, id);
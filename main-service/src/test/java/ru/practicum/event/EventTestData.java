@@ -0,0 +1,31 @@
+package ru.practicum.event;
+
+import ru.practicum.category.model.Category;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventState;
+import ru.practicum.location.model.LocationEntity;
+import ru.practicum.user.model.User;
+
+import java.time.LocalDateTime;
+
+// Опубликованное событие без лимита участников и модерации; тесты меняют нужные поля до сохранения
+public class EventTestData {
+
+    public static Event publishedEvent(Category category, User initiator, LocalDateTime eventDate, String title) {
+        Event event = new Event();
+        event.setAnnotation("Annotation of the test event " + title);
+        event.setCategory(category);
+        event.setCreatedOn(LocalDateTime.now());
+        event.setDescription("Description of the test event " + title);
+        event.setEventDate(eventDate);
+        event.setInitiator(initiator);
+        event.setLocation(new LocationEntity(55.75, 37.62));
+        event.setPaid(false);
+        event.setParticipantLimit(0);
+        event.setPublishedOn(LocalDateTime.now());
+        event.setRequestModeration(false);
+        event.setState(EventState.PUBLISHED);
+        event.setTitle(title);
+        return event;
+    }
+}
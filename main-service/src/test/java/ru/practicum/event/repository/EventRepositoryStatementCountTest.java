@@ -0,0 +1,91 @@
+package ru.practicum.event.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.category.model.Category;
+import ru.practicum.event.EventTestData;
+import ru.practicum.event.model.Event;
+import ru.practicum.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Страница событий должна стоить фиксированного числа запросов, а не двух ленивых select на строку
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class EventRepositoryStatementCountTest {
+    private static final int EVENTS = 10;
+    private static final int PAGE_SIZE = 4;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < EVENTS; i++) {
+            Category category = testEntityManager.persist(new Category(null, "category-" + i));
+            User initiator = testEntityManager.persist(new User(null, "user-" + i, "user-" + i + "@test.ru"));
+            testEntityManager.persist(EventTestData.publishedEvent(category, initiator,
+                    LocalDateTime.now().plusDays(i + 1), "Statement count test " + i));
+        }
+
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    // Страница меньше числа событий, поэтому Spring Data выполняет и запрос количества: ровно два запроса
+    @Test
+    void adminListingLoadsCategoryAndInitiatorWithContentAndCountStatements() {
+        Page<Event> page = eventRepository.findEventsByAdminFilters(null, null, null, null, null,
+                PageRequest.of(0, PAGE_SIZE));
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(page.getTotalElements()).isEqualTo(EVENTS);
+        page.getContent().forEach(event -> assertThat(event.getCategory().getName() + event.getInitiator().getName())
+                .isNotBlank());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void publicListingReadsShortViewInOneStatement() {
+        List<EventShortView> events = eventRepository.findEventsByPublicFiltersFromStart(null, null, null,
+                null, null, PageRequest.of(0, EVENTS + 1));
+
+        assertThat(events).hasSize(EVENTS);
+        events.forEach(event -> assertThat(event.getCategoryName() + event.getInitiatorName()).isNotBlank());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findAllByIdLoadsCategoryAndInitiatorInOneStatement() {
+        List<Long> ids = eventRepository.findPublishedIdsAfter(0L, PageRequest.of(0, EVENTS));
+        statistics.clear();
+
+        List<Event> events = eventRepository.findAllById(ids);
+
+        assertThat(events).hasSize(EVENTS);
+        events.forEach(event -> assertThat(event.getCategory().getName() + event.getInitiator().getName())
+                .isNotBlank());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
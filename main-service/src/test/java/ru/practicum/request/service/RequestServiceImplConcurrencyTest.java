@@ -0,0 +1,152 @@
+package ru.practicum.request.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.category.model.Category;
+import ru.practicum.category.repository.CategoryRepository;
+import ru.practicum.event.EventTestData;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.handler.exception.ConflictException;
+import ru.practicum.request.dto.EventRequestStatusUpdateRequest;
+import ru.practicum.request.model.Request;
+import ru.practicum.request.model.RequestState;
+import ru.practicum.request.repository.RequestRepository;
+import ru.practicum.user.model.User;
+import ru.practicum.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RequestServiceImplConcurrencyTest {
+    private static final int THREADS = 8;
+
+    @Autowired
+    private RequestService requestService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Test
+    void concurrentParticipationRequestsDoNotExceedLimit() throws Exception {
+        int limit = 3;
+        Event event = createEvent(limit, false);
+        List<Callable<Object>> calls = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            Long userId = createUser().getId();
+            calls.add(() -> requestService.postRequest(userId, event.getId()));
+        }
+
+        List<Throwable> failures = runConcurrently(calls);
+
+        assertThat(failures).hasSize(THREADS - limit)
+                .allMatch(ConflictException.class::isInstance);
+        assertConfirmed(event.getId(), limit);
+    }
+
+    @Test
+    void concurrentConfirmationsByInitiatorDoNotExceedLimit() throws Exception {
+        int limit = 2;
+        Event event = createEvent(limit, true);
+        List<Callable<Object>> calls = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            Long requestId = createPendingRequest(event).getId();
+            calls.add(() -> requestService.patchEventRequestsStatus(event.getInitiator().getId(), event.getId(),
+                    new EventRequestStatusUpdateRequest(List.of(requestId), RequestState.CONFIRMED.name())));
+        }
+
+        List<Throwable> failures = runConcurrently(calls);
+
+        assertThat(failures).hasSize(THREADS - limit)
+                .allMatch(ConflictException.class::isInstance);
+        assertConfirmed(event.getId(), limit);
+    }
+
+    private void assertConfirmed(Long eventId, long expected) {
+        assertThat(eventRepository.findById(eventId).orElseThrow().getConfirmedRequests()).isEqualTo(expected);
+        assertThat(requestRepository.countByEventIdAndStatus(eventId, RequestState.CONFIRMED)).isEqualTo(expected);
+    }
+
+    // Все вызовы стартуют одновременно; возвращаются исключения неуспешных
+    private List<Throwable> runConcurrently(List<Callable<Object>> calls) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(calls.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> futures = new ArrayList<>();
+
+        try {
+            for (Callable<Object> call : calls) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+
+            start.countDown();
+            List<Throwable> failures = new ArrayList<>();
+
+            for (Future<Object> future : futures) {
+                try {
+                    future.get(30, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                } catch (TimeoutException e) {
+                    throw new AssertionError("Вызов не завершился за 30 секунд", e);
+                }
+            }
+
+            return failures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(new User(null, name, name + "@test.ru"));
+    }
+
+    private Event createEvent(int participantLimit, boolean requestModeration) {
+        Category category = categoryRepository.save(new Category(null, UUID.randomUUID().toString()));
+        Event event = EventTestData.publishedEvent(category, createUser(), LocalDateTime.now().plusDays(7),
+                "Concurrency test event");
+        event.setParticipantLimit(participantLimit);
+        event.setRequestModeration(requestModeration);
+        return eventRepository.save(event);
+    }
+
+    private Request createPendingRequest(Event event) {
+        return requestRepository.save(Request.builder()
+                .requester(createUser())
+                .event(event)
+                .status(RequestState.PENDING)
+                .created(LocalDateTime.now())
+                .build());
+    }
+}
@@ -0,0 +1,135 @@
+package ru.practicum.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker по скользящему окну последних вызовов. Размыкается, когда доля ошибок или медленных
+ * вызовов превышает порог; через openDuration пропускает один пробный вызов и по его итогу замыкается
+ * или снова размыкается. Ошибки 4xx считаются ошибками вызывающего и в статистику не попадают.
+ * Каждая смена состояния начинает новое поколение; итоги вызовов, начатых в прошлом поколении, не учитываются.
+ */
+@Slf4j
+public class CircuitBreaker {
+    private final CircuitBreakerSettings settings;
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private State state = State.CLOSED;
+    private int position;
+    private int calls;
+    private int failedCalls;
+    private int slowCalls;
+    private long openedAt;
+    private boolean probeInFlight;
+    private long generation;
+
+    public CircuitBreaker(CircuitBreakerSettings settings) {
+        this.settings = settings;
+        this.failed = new boolean[settings.windowSize()];
+        this.slow = new boolean[settings.windowSize()];
+    }
+
+    // Итог фиксируется в finally: даже Error освобождает пробный вызов и считается ошибкой
+    public <T> T call(Supplier<T> action) {
+        long callGeneration = acquirePermission();
+        long started = System.nanoTime();
+        boolean failure = true;
+
+        try {
+            T result = action.get();
+            failure = false;
+            return result;
+        } catch (HttpClientErrorException e) {
+            failure = false;
+            throw e;
+        } finally {
+            onResult(callGeneration, failure, System.nanoTime() - started);
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return state == State.OPEN;
+    }
+
+    private synchronized long acquirePermission() {
+        if (state == State.CLOSED) {
+            return generation;
+        }
+
+        if (state == State.OPEN && System.nanoTime() - openedAt >= settings.openDuration().toNanos()) {
+            state = State.HALF_OPEN;
+            generation++;
+        }
+
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return generation;
+        }
+
+        throw new CircuitBreakerOpenException("Stats service circuit breaker is open");
+    }
+
+    private synchronized void onResult(long callGeneration, boolean failure, long durationNanos) {
+        // Вызов начат до размыкания или замыкания: его итог относится к прежнему состоянию
+        if (callGeneration != generation) {
+            return;
+        }
+
+        boolean slowCall = durationNanos >= settings.slowCallDuration().toNanos();
+
+        if (state == State.HALF_OPEN) {
+            if (failure || slowCall) {
+                open();
+            } else {
+                reset();
+                log.info("Circuit breaker stats-service замкнут");
+            }
+
+            return;
+        }
+
+        if (calls == settings.windowSize()) {
+            failedCalls -= failed[position] ? 1 : 0;
+            slowCalls -= slow[position] ? 1 : 0;
+        } else {
+            calls++;
+        }
+
+        failed[position] = failure;
+        slow[position] = slowCall;
+        failedCalls += failure ? 1 : 0;
+        slowCalls += slowCall ? 1 : 0;
+        position = (position + 1) % settings.windowSize();
+
+        if (calls >= settings.minimumCalls()
+                && (failedCalls * 100 >= settings.failureRateThreshold() * calls
+                || slowCalls * 100 >= settings.slowCallRateThreshold() * calls)) {
+            open();
+        }
+    }
+
+    private void open() {
+        log.warn("Circuit breaker stats-service разомкнут на {}: ошибок {}, медленных {} из {}",
+                settings.openDuration(), failedCalls, slowCalls, calls);
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        probeInFlight = false;
+        generation++;
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        probeInFlight = false;
+        generation++;
+        position = 0;
+        calls = 0;
+        failedCalls = 0;
+        slowCalls = 0;
+    }
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.client;
+
+import java.time.Duration;
+
+public record CircuitBreakerSettings(int failureRateThreshold,
+                                     int slowCallRateThreshold,
+                                     Duration slowCallDuration,
+                                     int windowSize,
+                                     int minimumCalls,
+                                     Duration openDuration) {
+}
@@ -0,0 +1,7 @@
+package ru.practicum.client;
+
+import java.time.Duration;
+
+public record CoalescingSettings(Duration window,
+                                 int maxBatchSize) {
+}
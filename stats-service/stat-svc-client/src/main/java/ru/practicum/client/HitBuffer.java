@@ -0,0 +1,246 @@
+package ru.practicum.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.dto.NewEndpointHitDto;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Slf4j
+public class HitBuffer implements AutoCloseable {
+    private final HitBufferSettings settings;
+    private final Consumer<List<NewEndpointHitDto>> sender;
+    private final BlockingQueue<NewEndpointHitDto> queue;
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final Object spillLock = new Object();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+    // Файл, который сейчас дочитывается; новые hit при этом пишутся в settings.spillFile()
+    private BufferedReader replayReader;
+    private long flushes;
+
+    public HitBuffer(HitBufferSettings settings, Consumer<List<NewEndpointHitDto>> sender) {
+        this.settings = settings;
+        this.sender = sender;
+        this.queue = new ArrayBlockingQueue<>(settings.capacity());
+        this.worker = new Thread(this::run, "stat-client-hit-buffer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public boolean offer(NewEndpointHitDto hit) {
+        if (!running) {
+            log.warn("Буфер статистики остановлен, hit отброшен: {}", hit);
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        if (queue.offer(hit)) {
+            return true;
+        }
+
+        return switch (settings.overflowPolicy()) {
+            case DROP -> drop(hit);
+            case BLOCK -> offerBlocking(hit);
+            case SPILL -> spill(hit);
+        };
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+
+        try {
+            worker.join(settings.shutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (worker.isAlive()) {
+            log.warn("Буфер статистики не успел выгрузиться за {}, осталось {} hit",
+                    settings.shutdownTimeout(), queue.size());
+            worker.interrupt();
+        }
+    }
+
+    private void run() {
+        List<NewEndpointHitDto> batch = new ArrayList<>(settings.batchSize());
+
+        while (running || !queue.isEmpty()) {
+            try {
+                NewEndpointHitDto first = queue.poll(settings.linger().toMillis(), TimeUnit.MILLISECONDS);
+
+                if (first == null) {
+                    replaySpillChunk();
+                    continue;
+                }
+
+                batch.add(first);
+                long deadline = System.nanoTime() + settings.linger().toNanos();
+
+                while (batch.size() < settings.batchSize()) {
+                    long remaining = deadline - System.nanoTime();
+
+                    if (remaining <= 0) {
+                        break;
+                    }
+
+                    NewEndpointHitDto next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+
+                    if (next == null) {
+                        break;
+                    }
+
+                    batch.add(next);
+                }
+
+                send(batch);
+                batch.clear();
+
+                // Под постоянной нагрузкой очередь не пустеет, поэтому файл дочитывается между живыми пакетами
+                if (settings.spillReplayEvery() > 0 && ++flushes % settings.spillReplayEvery() == 0) {
+                    replaySpillChunk();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        queue.drainTo(batch);
+
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+
+        while (replaySpillChunk()) {
+            // выгружаем файл целиком перед остановкой
+        }
+    }
+
+    private void send(List<NewEndpointHitDto> batch) {
+        try {
+            sender.accept(List.copyOf(batch));
+        } catch (Exception e) {
+            dropped.addAndGet(batch.size());
+            log.error("Не удалось отправить пакет статистики из {} hit: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private boolean drop(NewEndpointHitDto hit) {
+        long total = dropped.incrementAndGet();
+        log.warn("Буфер статистики переполнен, hit отброшен: {} (всего отброшено {})", hit, total);
+        return false;
+    }
+
+    private boolean offerBlocking(NewEndpointHitDto hit) {
+        try {
+            if (queue.offer(hit, settings.blockTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return drop(hit);
+    }
+
+    private boolean spill(NewEndpointHitDto hit) {
+        synchronized (spillLock) {
+            try {
+                Path file = settings.spillFile();
+
+                if (Files.exists(file) && Files.size(file) >= settings.spillMaxBytes()) {
+                    return drop(hit);
+                }
+
+                try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    writer.write(objectMapper.writeValueAsString(hit));
+                    writer.newLine();
+                    return true;
+                }
+            } catch (IOException e) {
+                log.error("Не удалось сохранить hit в файл {}: {}", settings.spillFile(), e.getMessage());
+                return drop(hit);
+            }
+        }
+    }
+
+    // Отправляет из файла не больше одного пакета; false - файл пуст и читать нечего
+    private boolean replaySpillChunk() {
+        if (settings.spillFile() == null) {
+            return false;
+        }
+
+        Path replayFile = replayFile();
+
+        try {
+            if (replayReader == null) {
+                synchronized (spillLock) {
+                    // Недочитанный файл мог остаться с прошлого запуска - тогда сначала он
+                    if (!Files.exists(replayFile)) {
+                        if (!Files.exists(settings.spillFile())) {
+                            return false;
+                        }
+
+                        Files.move(settings.spillFile(), replayFile, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                }
+
+                replayReader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8);
+            }
+
+            List<NewEndpointHitDto> batch = new ArrayList<>(settings.batchSize());
+            String line = null;
+
+            while (batch.size() < settings.batchSize() && (line = replayReader.readLine()) != null) {
+                try {
+                    batch.add(objectMapper.readValue(line, NewEndpointHitDto.class));
+                } catch (IOException e) {
+                    log.warn("Пропущена повреждённая запись в файле {}: {}", replayFile, line);
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+
+            if (line == null) {
+                replayReader.close();
+                replayReader = null;
+                Files.delete(replayFile);
+                log.info("Файл {} повторно отправлен полностью", replayFile);
+            }
+
+            return true;
+        } catch (IOException e) {
+            log.error("Не удалось прочитать файл {}: {}", replayFile, e.getMessage());
+            return false;
+        }
+    }
+
+    private Path replayFile() {
+        return settings.spillFile().resolveSibling(settings.spillFile().getFileName() + ".replay");
+    }
+}
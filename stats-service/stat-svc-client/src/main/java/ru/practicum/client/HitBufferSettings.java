@@ -0,0 +1,15 @@
+package ru.practicum.client;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+public record HitBufferSettings(int capacity,
+                                int batchSize,
+                                Duration linger,
+                                OverflowPolicy overflowPolicy,
+                                Duration blockTimeout,
+                                Path spillFile,
+                                long spillMaxBytes,
+                                int spillReplayEvery,
+                                Duration shutdownTimeout) {
+}
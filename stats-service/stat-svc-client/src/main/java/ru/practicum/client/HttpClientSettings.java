@@ -0,0 +1,10 @@
+package ru.practicum.client;
+
+import java.time.Duration;
+
+public record HttpClientSettings(Duration connectTimeout,
+                                 Duration readTimeout,
+                                 int maxConnections,
+                                 Duration keepAlive,
+                                 WireFormat wireFormat) {
+}
@@ -0,0 +1,126 @@
+package ru.practicum.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+
+/**
+ * Объединяет одновременные запросы статистики с одинаковыми параметрами. Ключи (uri, id ресурса), по которым
+ * запрос уже выполняется, не запрашиваются повторно (single-flight), а новые ключи разных вызывающих в течение
+ * окна собираются в один запрос к stats-service. Первый вызывающий пакета ждёт окно и выполняет запрос сам,
+ * остальные получают свою часть результата.
+ *
+ * @param <Q> параметры запроса, общие для пакета
+ * @param <K> ключ, по которому запросы объединяются
+ * @param <V> результат для одного ключа
+ */
+@Slf4j
+public class RequestCoalescer<Q, K, V> {
+    private final CoalescingSettings settings;
+    private final BiFunction<Q, List<K>, Map<K, V>> loader;
+    private final Object lock = new Object();
+    private final Map<FlightKey<Q, K>, CompletableFuture<V>> inFlight = new HashMap<>();
+    private final Map<Q, Batch<Q, K, V>> pending = new HashMap<>();
+
+    public RequestCoalescer(CoalescingSettings settings, BiFunction<Q, List<K>, Map<K, V>> loader) {
+        this.settings = settings;
+        this.loader = loader;
+    }
+
+    // Ключи, для которых у stats-service нет данных, в результат не попадают
+    public Map<K, V> get(Q query, Collection<K> keys) {
+        Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        List<Batch<Q, K, V>> ownBatches = new ArrayList<>();
+
+        synchronized (lock) {
+            for (K key : keys) {
+                FlightKey<Q, K> flightKey = new FlightKey<>(query, key);
+                CompletableFuture<V> future = inFlight.get(flightKey);
+
+                if (future == null) {
+                    Batch<Q, K, V> batch = pending.get(query);
+
+                    if (batch == null || batch.futures.size() >= settings.maxBatchSize()) {
+                        batch = new Batch<>(query);
+                        pending.put(query, batch);
+                        ownBatches.add(batch);
+                    }
+
+                    future = new CompletableFuture<>();
+                    batch.futures.put(key, future);
+                    inFlight.put(flightKey, future);
+                }
+
+                futures.put(key, future);
+            }
+        }
+
+        if (!ownBatches.isEmpty()) {
+            LockSupport.parkNanos(settings.window().toNanos());
+            ownBatches.forEach(this::execute);
+        }
+
+        Map<K, V> result = new LinkedHashMap<>();
+
+        futures.forEach((key, future) -> {
+            V value = await(future);
+
+            if (value != null) {
+                result.put(key, value);
+            }
+        });
+
+        return result;
+    }
+
+    // Пакет выполняет только создавший его вызывающий; после закрытия к пакету никто не присоединяется
+    private void execute(Batch<Q, K, V> batch) {
+        List<K> keys;
+
+        synchronized (lock) {
+            pending.remove(batch.query, batch);
+            keys = List.copyOf(batch.futures.keySet());
+        }
+
+        try {
+            Map<K, V> values = loader.apply(batch.query, keys);
+            batch.futures.forEach((key, future) -> future.complete(values.get(key)));
+        } catch (RuntimeException e) {
+            batch.futures.values().forEach(future -> future.completeExceptionally(e));
+        } finally {
+            synchronized (lock) {
+                batch.futures.forEach((key, future) -> inFlight.remove(new FlightKey<>(batch.query, key), future));
+            }
+        }
+
+        log.debug("Запрос статистики по {} ключам выполнен одним вызовом", keys.size());
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw e;
+        }
+    }
+
+    private record FlightKey<Q, K>(Q query, K key) {
+    }
+
+    private static class Batch<Q, K, V> {
+        private final Q query;
+        private final Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+
+        private Batch(Q query) {
+            this.query = query;
+        }
+    }
+}
@@ -1,46 +1,214 @@
 package ru.practicum.client;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
 import ru.practicum.dto.NewEndpointHitDto;
+import ru.practicum.dto.ResourceStatsRequestDto;
+import ru.practicum.dto.StatsRequestDto;
 import ru.practicum.dto.ViewStatsDto;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
-import java.util.List;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
-public class StatClient {
+@Slf4j
+public class StatClient implements AutoCloseable {
     private final RestClient restClient;
+    private final CloseableHttpClient httpClient;
+    private final CircuitBreaker circuitBreaker;
+    private final RequestCoalescer<StatsQuery, String, List<ViewStatsDto>> uriCoalescer;
+    private final RequestCoalescer<StatsQuery, Boolean, List<ViewStatsDto>> allUrisCoalescer;
+    private final RequestCoalescer<ResourceStatsQuery, Long, Long> resourceCoalescer;
+    private final HitBuffer hitBuffer;
+    private final WireFormat wireFormat;
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private static final int MAX_QUERY_URIS_LENGTH = 2000;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final ParameterizedTypeReference<Map<Long, Long>> RESOURCE_STATS_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     public StatClient(String baseUrl) {
-        this.restClient = RestClient.create(baseUrl);
+        this(baseUrl, null);
+    }
+
+    public StatClient(String baseUrl, HitBufferSettings bufferSettings) {
+        this(baseUrl, null, null, null, bufferSettings);
+    }
+
+    public StatClient(String baseUrl, HttpClientSettings httpSettings, CircuitBreakerSettings breakerSettings,
+                      CoalescingSettings coalescingSettings, HitBufferSettings bufferSettings) {
+        this.httpClient = httpSettings != null ? createHttpClient(httpSettings) : null;
+        this.wireFormat = httpSettings != null && httpSettings.wireFormat() != null
+                ? httpSettings.wireFormat()
+                : WireFormat.JSON;
+
+        RestClient.Builder builder = RestClient.builder().baseUrl(baseUrl);
+
+        if (httpClient != null) {
+            builder.requestFactory(new HttpComponentsClientHttpRequestFactory(httpClient));
+        }
+
+        this.restClient = builder.build();
+        this.circuitBreaker = breakerSettings != null ? new CircuitBreaker(breakerSettings) : null;
+        this.uriCoalescer = coalescingSettings != null
+                ? new RequestCoalescer<>(coalescingSettings, (query, uris) -> fetchStats(query.start(),
+                query.end(), uris, query.unique(), query.approximate()).stream()
+                .collect(Collectors.groupingBy(ViewStatsDto::getUri)))
+                : null;
+        this.allUrisCoalescer = coalescingSettings != null
+                ? new RequestCoalescer<>(coalescingSettings, (query, keys) -> Map.of(Boolean.TRUE,
+                fetchStats(query.start(), query.end(), null, query.unique(), query.approximate())))
+                : null;
+        this.resourceCoalescer = coalescingSettings != null
+                ? new RequestCoalescer<>(coalescingSettings, (query, ids) -> fetchResourceStats(
+                new ResourceStatsRequestDto(query.start(), query.end(), query.type(), ids, query.unique())))
+                : null;
+        this.hitBuffer = bufferSettings != null ? new HitBuffer(bufferSettings, this::sendHits) : null;
     }
 
     public void saveHit(NewEndpointHitDto hitDto) {
-        try {
-            ResponseEntity<Void> response = restClient.post()
-                    .uri("/hit")
-                    .body(hitDto)
-                    .retrieve()
-                    .toBodilessEntity();
+        if (hitBuffer != null) {
+            hitBuffer.offer(hitDto);
+            return;
+        }
 
-            if (response.getStatusCode().isError()) {
-                throw new RuntimeException("Failed to save hit: " + response.getStatusCode());
+        sendHit(hitDto);
+    }
+
+    @Override
+    public void close() {
+        if (hitBuffer != null) {
+            hitBuffer.close();
+        }
+
+        if (httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                log.warn("Не удалось закрыть HTTP-клиент статистики: {}", e.getMessage());
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error while saving hit to stats service", e);
         }
     }
 
     public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end,
                                        List<String> uris, boolean unique) {
+        return getStats(start, end, uris, unique, null);
+    }
+
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end,
+                                       List<String> uris, boolean unique, Boolean approximate) {
+        if (uriCoalescer == null) {
+            return fetchStats(start, end, uris, unique, approximate);
+        }
+
+        // В запрос время уходит с точностью до секунды, поэтому и ключ объединения по секундам
+        StatsQuery query = new StatsQuery(start.truncatedTo(ChronoUnit.SECONDS), end.truncatedTo(ChronoUnit.SECONDS),
+                unique, approximate);
+
+        if (uris == null || uris.isEmpty()) {
+            return allUrisCoalescer.get(query, List.of(Boolean.TRUE)).getOrDefault(Boolean.TRUE, List.of());
+        }
+
+        return uriCoalescer.get(query, new LinkedHashSet<>(uris)).values().stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(ViewStatsDto::getHits).reversed())
+                .toList();
+    }
+
+    // Top-N (app, uri) по числу хитов; фильтры и limit применяются на стороне stats-service
+    public List<ViewStatsDto> getTopStats(LocalDateTime start, LocalDateTime end, String app, String uriPrefix,
+                                          int limit, boolean unique) {
+        return postStats(new StatsRequestDto(start.truncatedTo(ChronoUnit.SECONDS),
+                end.truncatedTo(ChronoUnit.SECONDS), null, unique, null, app, uriPrefix, limit));
+    }
+
+    // Потоковая выгрузка: строки NDJSON разбираются по мере получения и передаются consumer, не накапливаясь в памяти
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                            Consumer<ViewStatsDto> consumer) {
+        StatsRequestDto request = new StatsRequestDto(start.truncatedTo(ChronoUnit.SECONDS),
+                end.truncatedTo(ChronoUnit.SECONDS), uris, unique, null);
+
+        try {
+            execute(() -> restClient.post()
+                    .uri("/stats")
+                    .contentType(wireFormat.getMediaType())
+                    .accept(APPLICATION_NDJSON)
+                    .body(request)
+                    .exchange((clientRequest, response) -> {
+                        if (response.getStatusCode().isError()) {
+                            throw new RuntimeException("Failed to stream stats: " + response.getStatusCode());
+                        }
+
+                        try (BufferedReader reader = new BufferedReader(
+                                new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+                            String line;
+
+                            while ((line = reader.readLine()) != null) {
+                                if (!line.isBlank()) {
+                                    consumer.accept(objectMapper.readValue(line, ViewStatsDto.class));
+                                }
+                            }
+                        }
+
+                        return null;
+                    }));
+        } catch (Exception e) {
+            throw new RuntimeException("Error while streaming stats from stats service", e);
+        }
+    }
+
+    // Число просмотров по id ресурсов вида /{type}/{id}; ресурсы без просмотров в ответ не попадают
+    public Map<Long, Long> getResourceStats(String type, Collection<Long> ids, LocalDateTime start,
+                                            LocalDateTime end, boolean unique) {
+        if (ids == null || ids.isEmpty()) {
+            return Map.of();
+        }
+
+        LocalDateTime from = start.truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime to = end.truncatedTo(ChronoUnit.SECONDS);
+
+        if (resourceCoalescer == null) {
+            return fetchResourceStats(new ResourceStatsRequestDto(from, to, type, List.copyOf(ids), unique));
+        }
+
+        return resourceCoalescer.get(new ResourceStatsQuery(type, from, to, unique), new LinkedHashSet<>(ids));
+    }
+
+    private List<ViewStatsDto> fetchStats(LocalDateTime start, LocalDateTime end,
+                                          List<String> uris, boolean unique, Boolean approximate) {
+        if (wireFormat != WireFormat.JSON || queryUrisLength(uris) > MAX_QUERY_URIS_LENGTH) {
+            return postStats(new StatsRequestDto(start, end, uris, unique, approximate));
+        }
+
         try {
             String startStr = start.format(FORMATTER);
             String endStr = end.format(FORMATTER);
 
-            ResponseEntity<ViewStatsDto[]> response = restClient.get()
+            ResponseEntity<ViewStatsDto[]> response = execute(() -> restClient.get()
                     .uri(uriBuilder -> {
                         uriBuilder.path("/stats")
                                 .queryParam("start", startStr)
@@ -51,14 +219,120 @@ public class StatClient {
                             uriBuilder.queryParam("uris", String.join(",", uris));
                         }
 
+                        if (approximate != null) {
+                            uriBuilder.queryParam("approximate", approximate);
+                        }
+
                         return uriBuilder.build();
                     })
                     .retrieve()
-                    .toEntity(ViewStatsDto[].class);
+                    .toEntity(ViewStatsDto[].class));
+
+            return Arrays.asList(response.getBody() != null ? response.getBody() : new ViewStatsDto[0]);
+        } catch (Exception e) {
+            throw new RuntimeException("Error while getting stats from stats service", e);
+        }
+    }
+
+    // Длинные списки uri и бинарный формат идут через POST /stats с параметрами в теле
+    private List<ViewStatsDto> postStats(StatsRequestDto request) {
+        try {
+            ResponseEntity<ViewStatsDto[]> response = execute(() -> restClient.post()
+                    .uri("/stats")
+                    .contentType(wireFormat.getMediaType())
+                    .accept(wireFormat.getMediaType())
+                    .body(request)
+                    .retrieve()
+                    .toEntity(ViewStatsDto[].class));
 
             return Arrays.asList(response.getBody() != null ? response.getBody() : new ViewStatsDto[0]);
         } catch (Exception e) {
             throw new RuntimeException("Error while getting stats from stats service", e);
         }
     }
+
+    private Map<Long, Long> fetchResourceStats(ResourceStatsRequestDto request) {
+        try {
+            Map<Long, Long> stats = execute(() -> restClient.post()
+                    .uri("/stats/resources")
+                    .contentType(wireFormat.getMediaType())
+                    .accept(wireFormat.getMediaType())
+                    .body(request)
+                    .retrieve()
+                    .body(RESOURCE_STATS_TYPE));
+
+            return stats != null ? stats : Map.of();
+        } catch (Exception e) {
+            throw new RuntimeException("Error while getting resource stats from stats service", e);
+        }
+    }
+
+    private static int queryUrisLength(List<String> uris) {
+        return uris == null ? 0 : uris.stream().mapToInt(uri -> uri.length() + 1).sum();
+    }
+
+    private void sendHits(List<NewEndpointHitDto> hits) {
+        try {
+            ResponseEntity<Void> response = execute(() -> restClient.post()
+                    .uri("/hit/batch")
+                    .contentType(wireFormat.getMediaType())
+                    .body(hits)
+                    .retrieve()
+                    .toBodilessEntity());
+
+            if (response.getStatusCode().isError()) {
+                throw new RuntimeException("Failed to save hits batch: " + response.getStatusCode());
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error while saving hits batch to stats service", e);
+        }
+    }
+
+    private void sendHit(NewEndpointHitDto hitDto) {
+        try {
+            ResponseEntity<Void> response = execute(() -> restClient.post()
+                    .uri("/hit")
+                    .body(hitDto)
+                    .retrieve()
+                    .toBodilessEntity());
+
+            if (response.getStatusCode().isError()) {
+                throw new RuntimeException("Failed to save hit: " + response.getStatusCode());
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error while saving hit to stats service", e);
+        }
+    }
+
+    // При разомкнутом circuit breaker вызов сразу завершается CircuitBreakerOpenException, не занимая поток
+    private <T> T execute(Supplier<T> call) {
+        return circuitBreaker != null ? circuitBreaker.call(call) : call.get();
+    }
+
+    private static CloseableHttpClient createHttpClient(HttpClientSettings settings) {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(settings.connectTimeout().toMillis()))
+                .setSocketTimeout(Timeout.ofMilliseconds(settings.readTimeout().toMillis()))
+                .setTimeToLive(TimeValue.ofMilliseconds(settings.keepAlive().toMillis()))
+                .build();
+
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.maxConnections())
+                .setMaxConnPerRoute(settings.maxConnections())
+                .setDefaultConnectionConfig(connectionConfig)
+                .build();
+
+        // Ожидание свободного соединения из пула ограничено тем же таймаутом, что и подключение
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(settings.connectTimeout().toMillis()))
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofMilliseconds(settings.keepAlive().toMillis()))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(settings.keepAlive().toMillis()))
+                .build();
+    }
 }
@@ -3,6 +3,10 @@ package ru.practicum.client;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
 
 @Configuration
 public class StatClientConfig {
@@ -10,8 +14,97 @@ public class StatClientConfig {
     @Value("${stats-server.url:http://localhost:9090}")
     private String serverUrl;
 
-    @Bean
+    @Value("${stats-server.http.connect-timeout:1s}")
+    private Duration connectTimeout;
+
+    @Value("${stats-server.http.read-timeout:2s}")
+    private Duration readTimeout;
+
+    @Value("${stats-server.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${stats-server.http.keep-alive:30s}")
+    private Duration keepAlive;
+
+    @Value("${stats-server.http.wire-format:CBOR}")
+    private WireFormat wireFormat;
+
+    @Value("${stats-server.circuit-breaker.enabled:true}")
+    private boolean circuitBreakerEnabled;
+
+    @Value("${stats-server.circuit-breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${stats-server.circuit-breaker.slow-call-rate-threshold:80}")
+    private int slowCallRateThreshold;
+
+    @Value("${stats-server.circuit-breaker.slow-call-duration:1s}")
+    private Duration slowCallDuration;
+
+    @Value("${stats-server.circuit-breaker.window-size:20}")
+    private int windowSize;
+
+    @Value("${stats-server.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${stats-server.circuit-breaker.open-duration:10s}")
+    private Duration openDuration;
+
+    @Value("${stats-server.coalescing.enabled:true}")
+    private boolean coalescingEnabled;
+
+    @Value("${stats-server.coalescing.window:5ms}")
+    private Duration coalescingWindow;
+
+    @Value("${stats-server.coalescing.max-batch-size:200}")
+    private int maxBatchSize;
+
+    @Value("${stats-server.ingest.async:false}")
+    private boolean asyncIngest;
+
+    @Value("${stats-server.ingest.capacity:10000}")
+    private int capacity;
+
+    @Value("${stats-server.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${stats-server.ingest.linger:200ms}")
+    private Duration linger;
+
+    @Value("${stats-server.ingest.overflow:DROP}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${stats-server.ingest.block-timeout:50ms}")
+    private Duration blockTimeout;
+
+    @Value("${stats-server.ingest.spill-file:${java.io.tmpdir}/stat-client-spill.ndjson}")
+    private Path spillFile;
+
+    @Value("${stats-server.ingest.spill-max-size:64MB}")
+    private DataSize spillMaxSize;
+
+    @Value("${stats-server.ingest.spill-replay-every:10}")
+    private int spillReplayEvery;
+
+    @Value("${stats-server.ingest.shutdown-timeout:5s}")
+    private Duration shutdownTimeout;
+
+    @Bean(destroyMethod = "close")
     public StatClient statClient() {
-        return new StatClient(serverUrl);
+        HttpClientSettings httpSettings = new HttpClientSettings(connectTimeout, readTimeout, maxConnections,
+                keepAlive, wireFormat);
+        CircuitBreakerSettings breakerSettings = circuitBreakerEnabled
+                ? new CircuitBreakerSettings(failureRateThreshold, slowCallRateThreshold, slowCallDuration,
+                windowSize, minimumCalls, openDuration)
+                : null;
+        CoalescingSettings coalescingSettings = coalescingEnabled
+                ? new CoalescingSettings(coalescingWindow, maxBatchSize)
+                : null;
+        HitBufferSettings bufferSettings = asyncIngest
+                ? new HitBufferSettings(capacity, batchSize, linger, overflowPolicy, blockTimeout, spillFile,
+                spillMaxSize.toBytes(), spillReplayEvery, shutdownTimeout)
+                : null;
+
+        return new StatClient(serverUrl, httpSettings, breakerSettings, coalescingSettings, bufferSettings);
     }
 }
@@ -0,0 +1,9 @@
+package ru.practicum.client;
+
+import java.time.LocalDateTime;
+
+public record StatsQuery(LocalDateTime start,
+                         LocalDateTime end,
+                         boolean unique,
+                         Boolean approximate) {
+}
@@ -0,0 +1,13 @@
+package ru.practicum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Ответ потоковой загрузки хитов: сколько непустых строк с начала потока сохранено
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HitBatchResultDto {
+    private int accepted;
+}
@@ -0,0 +1,42 @@
+package ru.practicum.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatsRequestDto {
+    @NotNull(message = "start is null")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime start;
+
+    @NotNull(message = "end is null")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime end;
+
+    private List<String> uris;
+
+    private boolean unique;
+
+    private Boolean approximate;
+
+    private String app;
+
+    private String uriPrefix;
+
+    @Positive(message = "limit is not positive")
+    private Integer limit;
+
+    public StatsRequestDto(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                           Boolean approximate) {
+        this(start, end, uris, unique, approximate, null, null, null);
+    }
+}
@@ -1,22 +1,46 @@
 package ru.practicum.statservice.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.dto.HitBatchResultDto;
 import ru.practicum.dto.NewEndpointHitDto;
+import ru.practicum.dto.ResourceStatsRequestDto;
+import ru.practicum.dto.StatsRequestDto;
 import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.statservice.handler.BadRequestException;
+import ru.practicum.statservice.handler.HitBatchException;
 import ru.practicum.statservice.service.StatService;
+import ru.practicum.statservice.service.StatsFilter;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Slf4j
 @Validated
@@ -24,7 +48,13 @@ import java.util.List;
 @RequestMapping
 @RequiredArgsConstructor
 public class StatController {
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final int NDJSON_CHUNK_SIZE = 1000;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private final StatService statService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
     @PostMapping("/hit")
     public ResponseEntity<Void> hit(@Valid @RequestBody NewEndpointHitDto hitDto) {
@@ -33,25 +63,184 @@ public class StatController {
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
+    @PostMapping(value = "/hit/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<Void> hitBatch(@NotEmpty @RequestBody List<@Valid NewEndpointHitDto> hitDtos) {
+        log.info("Получен пакет hit: size={}", hitDtos.size());
+        statService.saveHits(hitDtos);
+        return ResponseEntity.status(HttpStatus.CREATED).build();
+    }
+
+    // Хиты сохраняются порциями по NDJSON_CHUNK_SIZE строк, каждая в своей транзакции. При ошибке в строке
+    // ответ 400 содержит accepted - число уже сохранённых строк, повторять поток нужно со следующей
+    @PostMapping(value = "/hit/batch", consumes = APPLICATION_NDJSON)
+    public ResponseEntity<HitBatchResultDto> hitStream(InputStream body) throws IOException {
+        List<NewEndpointHitDto> chunk = new ArrayList<>(NDJSON_CHUNK_SIZE);
+        int saved = 0;
+        int lineNumber = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                lineNumber++;
+
+                try {
+                    chunk.add(readHit(line));
+                } catch (BadRequestException e) {
+                    throw new HitBatchException("Строка " + lineNumber + ": " + e.getMessage(), saved);
+                }
+
+                if (chunk.size() == NDJSON_CHUNK_SIZE) {
+                    saved += statService.saveHits(chunk);
+                    chunk.clear();
+                }
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            saved += statService.saveHits(chunk);
+        }
+
+        log.info("Получен поток hit: saved={}", saved);
+        return ResponseEntity.status(HttpStatus.CREATED).body(new HitBatchResultDto(saved));
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<List<ViewStatsDto>> getStats(
             @NotBlank @RequestParam String start,
             @NotBlank @RequestParam String end,
             @RequestParam(required = false) List<String> uris,
-            @RequestParam(defaultValue = "false") boolean unique) throws BadRequestException {
+            @RequestParam(defaultValue = "false") boolean unique,
+            @RequestParam(required = false) Boolean approximate,
+            @RequestParam(required = false) String app,
+            @RequestParam(required = false) String uriPrefix,
+            @Positive @RequestParam(required = false) Integer limit) throws BadRequestException {
 
         validateDateRangeParams(start, end);
-        log.info("Получен запрос на статистику: start={}, end={}, uris={}, unique={}",
-                start, end, uris, unique);
-        return ResponseEntity.ok().body(statService.getStats(start, end, uris, unique));
+        log.info("Получен запрос на статистику: start={}, end={}, uris={}, unique={}, approximate={}, app={}, " +
+                "uriPrefix={}, limit={}", start, end, uris, unique, approximate, app, uriPrefix, limit);
+        return ResponseEntity.ok().body(statService.getStats(start, end, uris, unique, approximate,
+                new StatsFilter(app, uriPrefix, limit)));
+
+    }
+
+    // Тот же запрос статистики, но параметры в теле: список uri не упирается в длину URL
+    @PostMapping(value = "/stats", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<List<ViewStatsDto>> getStatsByBody(@Valid @RequestBody StatsRequestDto request) {
+        if (request.getStart().isAfter(request.getEnd())) {
+            throw new BadRequestException("Время начала не может быть после окончания выборки");
+        }
+
+        log.info("Получен запрос на статистику: start={}, end={}, uris={}, unique={}, approximate={}, app={}, " +
+                        "uriPrefix={}, limit={}", request.getStart(), request.getEnd(),
+                request.getUris() != null ? request.getUris().size() : null,
+                request.isUnique(), request.getApproximate(), request.getApp(), request.getUriPrefix(),
+                request.getLimit());
+        return ResponseEntity.ok().body(statService.getStats(request.getStart(), request.getEnd(),
+                request.getUris(), request.isUnique(), request.getApproximate(),
+                new StatsFilter(request.getApp(), request.getUriPrefix(), request.getLimit())));
+    }
+
+    // Потоковый режим (Accept: application/x-ndjson): по строке JSON на каждую пару (app, uri), без сборки списка
+    @GetMapping(value = "/stats", produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamStats(
+            @NotBlank @RequestParam String start,
+            @NotBlank @RequestParam String end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") boolean unique,
+            @RequestParam(required = false) String app,
+            @RequestParam(required = false) String uriPrefix,
+            @Positive @RequestParam(required = false) Integer limit) throws BadRequestException {
+
+        validateDateRangeParams(start, end);
+        log.info("Получен запрос на потоковую статистику: start={}, end={}, uris={}, unique={}, app={}, " +
+                "uriPrefix={}, limit={}", start, end, uris, unique, app, uriPrefix, limit);
+
+        LocalDateTime startTime = LocalDateTime.parse(start, FORMATTER);
+        LocalDateTime endTime = LocalDateTime.parse(end, FORMATTER);
+        StatsFilter filter = new StatsFilter(app, uriPrefix, limit);
+        return ndjson(consumer -> statService.streamStats(startTime, endTime, uris, unique, filter, consumer));
+    }
+
+    @PostMapping(value = "/stats", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamStatsByBody(@Valid @RequestBody StatsRequestDto request) {
+        if (request.getStart().isAfter(request.getEnd())) {
+            throw new BadRequestException("Время начала не может быть после окончания выборки");
+        }
+
+        log.info("Получен запрос на потоковую статистику: start={}, end={}, uris={}, unique={}, app={}, " +
+                        "uriPrefix={}, limit={}", request.getStart(), request.getEnd(),
+                request.getUris() != null ? request.getUris().size() : null,
+                request.isUnique(), request.getApp(), request.getUriPrefix(), request.getLimit());
+
+        StatsFilter filter = new StatsFilter(request.getApp(), request.getUriPrefix(), request.getLimit());
+        return ndjson(consumer -> statService.streamStats(request.getStart(), request.getEnd(), request.getUris(),
+                request.isUnique(), filter, consumer));
+    }
+
+    // Компактный ответ {id: hits} по числовым id ресурсов, без сравнения строк uri
+    @PostMapping(value = "/stats/resources",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<Map<Long, Long>> getResourceStats(@Valid @RequestBody ResourceStatsRequestDto request) {
+        if (request.getStart().isAfter(request.getEnd())) {
+            throw new BadRequestException("Время начала не может быть после окончания выборки");
+        }
+
+        log.info("Получен запрос на статистику ресурсов: type={}, ids={}, unique={}",
+                request.getType(), request.getIds().size(), request.isUnique());
+        return ResponseEntity.ok().body(statService.getResourceHits(request.getStart(), request.getEnd(),
+                request.getType(), request.getIds(), request.isUnique()));
+    }
+
+    // Тело пишется уже после выхода из контроллера, в потоке async-обработки; транзакция открывается внутри
+    private ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<ViewStatsDto>> producer) {
+        StreamingResponseBody body = outputStream -> {
+            BufferedOutputStream out = new BufferedOutputStream(outputStream);
+
+            producer.accept(stat -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(stat));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            out.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON))
+                .body(body);
+    }
+
+    private NewEndpointHitDto readHit(String line) {
+        NewEndpointHitDto hitDto;
+
+        try {
+            hitDto = objectMapper.readValue(line, NewEndpointHitDto.class);
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Неверный формат hit: " + e.getOriginalMessage());
+        }
+
+        Set<ConstraintViolation<NewEndpointHitDto>> violations = validator.validate(hitDto);
+
+        if (!violations.isEmpty()) {
+            throw new BadRequestException("Ошибка валидации hit: " + violations.iterator().next().getMessage());
+        }
 
+        return hitDto;
     }
 
     private void validateDateRangeParams(String start, String end) {
         try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            LocalDateTime startDate = LocalDateTime.parse(start, formatter);
-            LocalDateTime endDate = LocalDateTime.parse(end, formatter);
+            LocalDateTime startDate = LocalDateTime.parse(start, FORMATTER);
+            LocalDateTime endDate = LocalDateTime.parse(end, FORMATTER);
 
             if (startDate.isAfter(endDate)) {
                 throw new BadRequestException("Время начала не может быть после окончания выборки");
@@ -0,0 +1,7 @@
+package ru.practicum.statservice.handler;
+
+import java.time.LocalDateTime;
+
+public record HitBatchErrorResponse(LocalDateTime timestamp, Integer status, String error, String message,
+                                    Integer accepted) {
+}
@@ -0,0 +1,14 @@
+package ru.practicum.statservice.handler;
+
+import lombok.Getter;
+
+// Ошибка в середине потока хитов: первые accepted строк уже сохранены, повторять нужно начиная со следующей
+@Getter
+public class HitBatchException extends BadRequestException {
+    private final int accepted;
+
+    public HitBatchException(String message, int accepted) {
+        super(message);
+        this.accepted = accepted;
+    }
+}
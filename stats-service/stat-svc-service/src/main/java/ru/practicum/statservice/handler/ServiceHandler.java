@@ -1,11 +1,13 @@
 package ru.practicum.statservice.handler;
 
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 import java.time.LocalDateTime;
 
@@ -13,9 +15,13 @@ import java.time.LocalDateTime;
 @RestControllerAdvice
 public class ServiceHandler {
 
-    @ExceptionHandler(MethodArgumentNotValidException.class)
+    @ExceptionHandler({
+            MethodArgumentNotValidException.class,
+            ConstraintViolationException.class,
+            HandlerMethodValidationException.class
+    })
     @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ErrorResponse handleValidationExceptions(MethodArgumentNotValidException ex) {
+    public ErrorResponse handleValidationExceptions(Exception ex) {
         log.error("Ошибка валидации: {}", ex.getMessage());
         return new ErrorResponse(LocalDateTime.now(), HttpStatus.BAD_REQUEST.value(),
                 "Validation error", ex.getMessage());
@@ -29,6 +35,14 @@ public class ServiceHandler {
                 "Request error", ex.getMessage());
     }
 
+    @ExceptionHandler(HitBatchException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public HitBatchErrorResponse handleHitBatchExceptions(HitBatchException ex) {
+        log.error("Ошибка в потоке hit после {} сохранённых: {}", ex.getAccepted(), ex.getMessage());
+        return new HitBatchErrorResponse(LocalDateTime.now(), HttpStatus.BAD_REQUEST.value(),
+                "Request error", ex.getMessage(), ex.getAccepted());
+    }
+
     @ExceptionHandler(RuntimeException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleGeneralExceptions(RuntimeException ex) {
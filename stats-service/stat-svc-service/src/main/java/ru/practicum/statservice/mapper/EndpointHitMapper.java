@@ -1,12 +1,29 @@
 package ru.practicum.statservice.mapper;
 
+import org.mapstruct.AfterMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 import ru.practicum.dto.NewEndpointHitDto;
 import ru.practicum.statservice.model.EndpointHit;
+import ru.practicum.statservice.model.ResourceKey;
 
 @Mapper(componentModel = "spring")
 public interface EndpointHitMapper {
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "app", ignore = true)
+    @Mapping(target = "uri", ignore = true)
+    @Mapping(target = "resourceType", ignore = true)
+    @Mapping(target = "resourceId", ignore = true)
     EndpointHit mapToEndpointHit(NewEndpointHitDto newEndpointHitDto);
+
+    @AfterMapping
+    default void fillResourceKey(NewEndpointHitDto newEndpointHitDto, @MappingTarget EndpointHit hit) {
+        ResourceKey key = ResourceKey.fromUri(newEndpointHitDto.getUri());
+
+        if (key != null) {
+            hit.setResourceType(key.type());
+            hit.setResourceId(key.id());
+        }
+    }
 }
@@ -15,22 +15,32 @@ import java.util.Objects;
 @Table(name = "endpoint_hits")
 public class EndpointHit {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "endpoint_hits_seq")
+    @SequenceGenerator(name = "endpoint_hits_seq", sequenceName = "endpoint_hits_seq", allocationSize = 50)
     @Column(name = "ID")
     private Long id;
 
-    @Column(name = "APP", nullable = false)
-    private String app;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "APP_ID", nullable = false)
+    private HitApp app;
 
-    @Column(name = "URI", nullable = false, length = 2048)
-    private String uri;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "URI_ID", nullable = false)
+    private HitUri uri;
 
-    @Column(name = "IP", nullable = false, length = 45)
+    @Convert(converter = IpAddressConverter.class)
+    @Column(name = "IP_ADDRESS", nullable = false)
     private String ip;
 
     @Column(name = "TIMESTAMP", nullable = false)
     private LocalDateTime timestamp;
 
+    @Column(name = "RESOURCE_TYPE", length = 32)
+    private String resourceType;
+
+    @Column(name = "RESOURCE_ID")
+    private Long resourceId;
+
     @Override
     public boolean equals(Object object) {
         if (object == null || getClass() != object.getClass()) return false;
@@ -0,0 +1,31 @@
+package ru.practicum.statservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@IdClass(HitCounterId.class)
+@Table(name = "endpoint_hit_counters")
+public class HitCounter {
+    @Id
+    @Column(name = "APP_ID", nullable = false)
+    private Integer appId;
+
+    @Id
+    @Column(name = "URI_ID", nullable = false)
+    private Long uriId;
+
+    @Id
+    @Column(name = "BUCKET", nullable = false)
+    private LocalDateTime bucket;
+
+    @Column(name = "HITS", nullable = false)
+    private Long hits;
+}
@@ -0,0 +1,17 @@
+package ru.practicum.statservice.model;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class HitCounterId implements Serializable {
+    private Integer appId;
+    private Long uriId;
+    private LocalDateTime bucket;
+}
@@ -0,0 +1,7 @@
+package ru.practicum.statservice.model;
+
+public record HitIpKey(Integer appId, Long uriId, String ip) {
+    public HitKey key() {
+        return new HitKey(appId, uriId);
+    }
+}
@@ -0,0 +1,5 @@
+package ru.practicum.statservice.model;
+
+// Пара (app, uri) в id словарей - ключ корзин и скетчей
+public record HitKey(Integer appId, Long uriId) {
+}
@@ -0,0 +1,6 @@
+package ru.practicum.statservice.model;
+
+import java.time.LocalDateTime;
+
+public record HitRow(Long id, String app, String uri, String ip, LocalDateTime timestamp) {
+}
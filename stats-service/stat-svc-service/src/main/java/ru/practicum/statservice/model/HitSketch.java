@@ -0,0 +1,32 @@
+package ru.practicum.statservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@IdClass(HitCounterId.class)
+@Table(name = "endpoint_hit_sketches")
+public class HitSketch {
+    @Id
+    @Column(name = "APP_ID", nullable = false)
+    private Integer appId;
+
+    @Id
+    @Column(name = "URI_ID", nullable = false)
+    private Long uriId;
+
+    @Id
+    @Column(name = "BUCKET", nullable = false)
+    private LocalDateTime bucket;
+
+    @ToString.Exclude
+    @Column(name = "REGISTERS", nullable = false)
+    private byte[] registers;
+}
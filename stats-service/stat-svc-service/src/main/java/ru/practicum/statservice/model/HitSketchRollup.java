@@ -0,0 +1,38 @@
+package ru.practicum.statservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ru.practicum.statservice.sketch.SketchGranularity;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@IdClass(HitSketchRollupId.class)
+@Table(name = "endpoint_hit_sketch_rollups")
+public class HitSketchRollup {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "GRANULARITY", nullable = false, length = 8)
+    private SketchGranularity granularity;
+
+    @Id
+    @Column(name = "APP_ID", nullable = false)
+    private Integer appId;
+
+    @Id
+    @Column(name = "URI_ID", nullable = false)
+    private Long uriId;
+
+    @Id
+    @Column(name = "BUCKET", nullable = false)
+    private LocalDateTime bucket;
+
+    @ToString.Exclude
+    @Column(name = "REGISTERS", nullable = false)
+    private byte[] registers;
+}
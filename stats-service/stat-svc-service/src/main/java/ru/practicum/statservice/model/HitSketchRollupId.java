@@ -0,0 +1,19 @@
+package ru.practicum.statservice.model;
+
+import lombok.*;
+import ru.practicum.statservice.sketch.SketchGranularity;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class HitSketchRollupId implements Serializable {
+    private SketchGranularity granularity;
+    private Integer appId;
+    private Long uriId;
+    private LocalDateTime bucket;
+}
@@ -0,0 +1,116 @@
+package ru.practicum.statservice.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Хранит IP в бинарном виде: IPv4 - 4 байта, IPv6 - 16 байт, поэтому COUNT(DISTINCT ip) сравнивает короткие
+ * массивы байт, а не строки. Значения, которые не разбираются как IP-литерал, сохраняются как текст с маркером
+ * в начале - API по-прежнему принимает и отдаёт IP строкой.
+ */
+@Converter
+public class IpAddressConverter implements AttributeConverter<String, byte[]> {
+    private static final byte TEXT_MARKER = 0;
+
+    @Override
+    public byte[] convertToDatabaseColumn(String ip) {
+        return ip == null ? null : encode(ip);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] bytes) {
+        return bytes == null ? null : decode(bytes);
+    }
+
+    public static byte[] encode(String ip) {
+        byte[] ipv4 = parseIpv4(ip);
+
+        if (ipv4 != null) {
+            return ipv4;
+        }
+
+        byte[] ipv6 = parseIpv6(ip);
+
+        if (ipv6 != null) {
+            return ipv6;
+        }
+
+        // Маркер, повторённый при необходимости, не даёт тексту совпасть по длине с адресом
+        byte[] text = ip.getBytes(StandardCharsets.UTF_8);
+        int markers = text.length + 1 == 4 || text.length + 1 == 16 ? 2 : 1;
+        byte[] bytes = new byte[text.length + markers];
+        System.arraycopy(text, 0, bytes, markers, text.length);
+        return bytes;
+    }
+
+    public static String decode(byte[] bytes) {
+        if (bytes.length == 4) {
+            return (bytes[0] & 0xFF) + "." + (bytes[1] & 0xFF) + "." + (bytes[2] & 0xFF) + "." + (bytes[3] & 0xFF);
+        }
+
+        if (bytes.length == 16) {
+            try {
+                return InetAddress.getByAddress(bytes).getHostAddress();
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        int start = 0;
+
+        while (start < bytes.length && bytes[start] == TEXT_MARKER) {
+            start++;
+        }
+
+        return new String(Arrays.copyOfRange(bytes, start, bytes.length), StandardCharsets.UTF_8);
+    }
+
+    // 4 байта IPv4-литерала a.b.c.d или null
+    public static byte[] parseIpv4(String ip) {
+        byte[] bytes = new byte[4];
+        int octets = 0;
+        int octet = -1;
+
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+
+            if (c == '.') {
+                if (octet < 0 || octets == 4) {
+                    return null;
+                }
+
+                bytes[octets++] = (byte) octet;
+                octet = -1;
+            } else if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+
+                if (octet > 255) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+
+        return octets == 4 ? bytes : null;
+    }
+
+    // InetAddress разбирает строку с ':' как IPv6-литерал без обращения к DNS; прочие символы отсекаются заранее
+    private static byte[] parseIpv6(String ip) {
+        if (ip.indexOf(':') < 0 || !ip.chars().allMatch(c -> c == ':' || c == '.' || Character.digit(c, 16) >= 0)) {
+            return null;
+        }
+
+        try {
+            // IPv4-mapped адрес (::ffff:a.b.c.d) возвращается как IPv4
+            return InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package ru.practicum.statservice.model;
+
+public record ResourceHits(Long resourceId, Long hits) {
+}
@@ -0,0 +1,27 @@
+package ru.practicum.statservice.model;
+
+// Типизированный ключ ресурса из uri вида /{type}/{id}, например /events/42 -> (events, 42)
+public record ResourceKey(String type, Long id) {
+    private static final int MAX_TYPE_LENGTH = 32;
+    private static final int MAX_ID_DIGITS = 18;
+
+    public static ResourceKey fromUri(String uri) {
+        if (uri == null || !uri.startsWith("/")) {
+            return null;
+        }
+
+        int slash = uri.indexOf('/', 1);
+
+        if (slash < 2 || slash > MAX_TYPE_LENGTH + 1 || uri.indexOf('/', slash + 1) >= 0) {
+            return null;
+        }
+
+        String id = uri.substring(slash + 1);
+
+        if (id.isEmpty() || id.length() > MAX_ID_DIGITS || !id.chars().allMatch(Character::isDigit)) {
+            return null;
+        }
+
+        return new ResourceKey(uri.substring(1, slash), Long.parseLong(id));
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.statservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "hit_rollup_state")
+public class RollupState {
+    public static final Integer ID = 1;
+
+    @Id
+    @Column(name = "ID")
+    private Integer id;
+
+    @Column(name = "WATERMARK")
+    private LocalDateTime watermark;
+
+    // Суточные и месячные скетчи собраны для всего, что раньше этой отметки (начало суток)
+    @Column(name = "SKETCH_WATERMARK")
+    private LocalDateTime sketchWatermark;
+}
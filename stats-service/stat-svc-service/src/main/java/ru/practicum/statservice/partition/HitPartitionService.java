@@ -0,0 +1,240 @@
+package ru.practicum.statservice.partition;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statservice.model.RollupState;
+import ru.practicum.statservice.repository.RollupStateRepository;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Управляет секциями таблицы endpoint_hits (PostgreSQL, PARTITION BY RANGE (timestamp)):
+ * заранее создаёт секции на ближайшие интервалы и удаляет целиком секции старше срока хранения.
+ * Хиты, попавшие в секцию по умолчанию, переносятся в секции своих интервалов и удаляются вместе с ними.
+ * Секция удаляется только после того, как её хиты свёрнуты в endpoint_hit_counters.
+ * Обычная (несекционированная) endpoint_hits существующей базы при старте переводится в секционированную.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.partitioning.enabled", havingValue = "true")
+@DependsOn({"hitDimensionMigration", "hitIpMigration"})
+public class HitPartitionService {
+    private static final String TABLE = "endpoint_hits";
+    private static final String PREFIX = TABLE + "_p";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final String LEGACY_TABLE = TABLE + "_legacy";
+    private static final String COLUMNS = "id, app_id, uri_id, ip_address, timestamp, resource_type, resource_id";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RollupStateRepository rollupStateRepository;
+
+    @Value("${stats.partitioning.interval:DAILY}")
+    private PartitionInterval interval;
+
+    @Value("${stats.partitioning.premake:7}")
+    private int premake;
+
+    @Value("${stats.partitioning.retention:0d}")
+    private Period retention;
+
+    @Value("${spring.sql.init.schema-locations:classpath:schema-partitioned.sql,classpath:schema.sql}")
+    private List<String> schemaLocations;
+
+    // Выполняется до старта веб-сервера и после переноса старых колонок на словари и бинарный IP
+    @PostConstruct
+    public void migrate() {
+        List<String> kinds = jdbcTemplate.queryForList("SELECT CAST(relkind AS VARCHAR) FROM pg_class " +
+                "WHERE oid = to_regclass(CAST(? AS TEXT))", String.class, TABLE);
+
+        if (kinds.isEmpty()) {
+            throw new IllegalStateException("Таблица " + TABLE + " не найдена, проверьте schema-locations");
+        }
+
+        if ("r".equals(kinds.getFirst())) {
+            migrateLegacyTable();
+        }
+
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+    }
+
+    // CREATE TABLE IF NOT EXISTS в schema-partitioned.sql старую таблицу не трогает, поэтому она переименовывается
+    // вместе с индексами, схема создаётся заново, хиты копируются в секции своих интервалов с прежними id,
+    // старая таблица удаляется. Всё в одной транзакции: при сбое база остаётся в исходном виде
+    private void migrateLegacyTable() {
+        log.info("Перевод {} в секционированную таблицу", TABLE);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + LEGACY_TABLE);
+
+            for (String index : jdbcTemplate.queryForList("SELECT indexname FROM pg_indexes " +
+                    "WHERE tablename = ? AND schemaname = CURRENT_SCHEMA", String.class, LEGACY_TABLE)) {
+                jdbcTemplate.execute("ALTER INDEX " + index + " RENAME TO " + index + "_legacy");
+            }
+
+            ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+            DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+            schemaLocations.forEach(location -> populator.addScript(resourceLoader.getResource(location)));
+            DatabasePopulatorUtils.execute(populator, dataSource);
+
+            jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+            createPartitions(findPartitionStarts(LEGACY_TABLE));
+
+            int copied = jdbcTemplate.update("INSERT INTO " + TABLE + " (" + COLUMNS + ") SELECT " + COLUMNS +
+                    " FROM " + LEGACY_TABLE);
+            jdbcTemplate.execute("DROP TABLE " + LEGACY_TABLE);
+            log.info("{} переведена в секционированную таблицу, перенесено хитов: {}", TABLE, copied);
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${stats.partitioning.cron:0 5 0 * * *}")
+    public void maintain() {
+        // Кроме ближайших интервалов - те, чьи хиты уже попали в секцию по умолчанию: дни, пропущенные,
+        // пока сервис не работал дольше premake
+        createPartitions(findPartitionStarts(DEFAULT_PARTITION));
+        dropExpiredPartitions();
+    }
+
+    private void createPartitions(Collection<LocalDate> extraStarts) {
+        SortedSet<LocalDate> starts = new TreeSet<>(extraStarts);
+        LocalDate start = interval.floor(LocalDate.now());
+
+        for (int i = 0; i <= premake; i++) {
+            starts.add(start);
+            start = interval.next(start);
+        }
+
+        List<String> existing = findPartitions();
+
+        for (LocalDate partitionStart : starts) {
+            String name = PREFIX + interval.suffix(partitionStart);
+
+            if (!existing.contains(name)) {
+                createPartition(name, partitionStart, interval.next(partitionStart));
+            }
+        }
+    }
+
+    // Секцию нельзя создать, пока в секции по умолчанию есть строки из её диапазона: секция по умолчанию
+    // отсоединяется, строки переносятся в новую секцию, затем она присоединяется обратно. Всё в одной
+    // транзакции - вставки в endpoint_hits на это время ждут блокировку. Ошибка не глотается: иначе новые
+    // хиты так и копились бы в секции по умолчанию, которую срок хранения не чистит
+    private void createPartition(String name, LocalDate start, LocalDate end) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Boolean conflicting = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION +
+                    " WHERE timestamp >= ? AND timestamp < ?)", Boolean.class, start.atStartOfDay(),
+                    end.atStartOfDay());
+
+            if (!Boolean.TRUE.equals(conflicting)) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + TABLE +
+                        " FOR VALUES FROM ('" + start + "') TO ('" + end + "')");
+                return;
+            }
+
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + DEFAULT_PARTITION);
+            jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + TABLE +
+                    " FOR VALUES FROM ('" + start + "') TO ('" + end + "')");
+            int moved = jdbcTemplate.update("INSERT INTO " + name + " SELECT * FROM " + DEFAULT_PARTITION +
+                    " WHERE timestamp >= ? AND timestamp < ?", start.atStartOfDay(), end.atStartOfDay());
+            jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ?",
+                    start.atStartOfDay(), end.atStartOfDay());
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+            log.info("Создана секция {}, из секции по умолчанию перенесено хитов: {}", name, moved);
+        });
+    }
+
+    private List<LocalDate> findPartitionStarts(String table) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT CAST(timestamp AS DATE) FROM " + table,
+                        LocalDate.class).stream()
+                .map(interval::floor)
+                .distinct()
+                .toList();
+    }
+
+    private void dropExpiredPartitions() {
+        if (retention.isZero()) {
+            return;
+        }
+
+        LocalDateTime cutoff = LocalDate.now().minus(retention).atStartOfDay();
+        LocalDateTime watermark = rollupStateRepository.findById(RollupState.ID)
+                .map(RollupState::getWatermark)
+                .orElse(null);
+
+        if (watermark == null) {
+            log.warn("Хиты ещё не свёрнуты, удаление секций отложено");
+            return;
+        }
+
+        if (watermark.isBefore(cutoff)) {
+            cutoff = watermark;
+        }
+
+        for (String name : findPartitions()) {
+            LocalDate start = parseStart(name);
+
+            if (start == null || interval.next(start).atStartOfDay().isAfter(cutoff)) {
+                continue;
+            }
+
+            try {
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + name);
+                jdbcTemplate.execute("DROP TABLE " + name);
+                log.info("Удалена секция {} (срок хранения {})", name, retention);
+            } catch (DataAccessException e) {
+                log.error("Не удалось удалить секцию {}: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private List<String> findPartitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = ? AND c.relname LIKE ?", String.class, TABLE, PREFIX + "%");
+    }
+
+    private LocalDate parseStart(String name) {
+        String suffix = name.substring(PREFIX.length());
+
+        try {
+            return switch (interval) {
+                case DAILY -> LocalDate.parse(suffix, DateTimeFormatter.BASIC_ISO_DATE);
+                case MONTHLY -> LocalDate.parse(suffix + "01", DateTimeFormatter.BASIC_ISO_DATE);
+            };
+        } catch (DateTimeParseException e) {
+            log.warn("Секция {} не соответствует интервалу {}, пропущена", name, interval);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.statservice.partition;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+public enum PartitionInterval {
+    DAILY(DateTimeFormatter.ofPattern("yyyyMMdd")) {
+        @Override
+        public LocalDate floor(LocalDate date) {
+            return date;
+        }
+
+        @Override
+        public LocalDate next(LocalDate start) {
+            return start.plusDays(1);
+        }
+    },
+    MONTHLY(DateTimeFormatter.ofPattern("yyyyMM")) {
+        @Override
+        public LocalDate floor(LocalDate date) {
+            return date.withDayOfMonth(1);
+        }
+
+        @Override
+        public LocalDate next(LocalDate start) {
+            return start.plusMonths(1);
+        }
+    };
+
+    private final DateTimeFormatter suffixFormat;
+
+    PartitionInterval(DateTimeFormatter suffixFormat) {
+        this.suffixFormat = suffixFormat;
+    }
+
+    public abstract LocalDate floor(LocalDate date);
+
+    public abstract LocalDate next(LocalDate start);
+
+    public String suffix(LocalDate start) {
+        return start.format(suffixFormat);
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.statservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.statservice.model.HitApp;
+
+import java.util.Optional;
+
+public interface HitAppRepository extends JpaRepository<HitApp, Integer> {
+    Optional<HitApp> findByName(String name);
+
+    @Modifying
+    @Query(value = "MERGE INTO hit_apps a " +
+            "USING (SELECT CAST(:name AS VARCHAR(255)) AS name) s " +
+            "ON a.name = s.name " +
+            "WHEN NOT MATCHED THEN INSERT (name) VALUES (s.name)",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("name") String name);
+}
@@ -0,0 +1,72 @@
+package ru.practicum.statservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statservice.model.HitCounter;
+import ru.practicum.statservice.model.HitCounterId;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface HitCounterRepository extends JpaRepository<HitCounter, HitCounterId> {
+
+    // Необязательные фильтры по id приложения и префиксу uri (null - без фильтра)
+    String DIMENSIONS_FILTER = "      AND (:appId IS NULL OR c.appId = :appId) " +
+            "      AND (:uriPattern IS NULL OR c.uriId IN " +
+            "           (SELECT f.id FROM HitUri f WHERE f.uri LIKE :uriPattern ESCAPE '\\')) ";
+
+    // Сворачивает сырые хиты из [from, to) в часовые корзины, прибавляя к уже существующим
+    @Modifying
+    @Query(value = "MERGE INTO endpoint_hit_counters c " +
+            "USING (SELECT app_id, uri_id, DATE_TRUNC('HOUR', timestamp) AS bucket, COUNT(*) AS hits " +
+            "       FROM endpoint_hits " +
+            "       WHERE timestamp >= :from AND timestamp < :to " +
+            "       GROUP BY app_id, uri_id, DATE_TRUNC('HOUR', timestamp)) h " +
+            "ON c.app_id = h.app_id AND c.uri_id = h.uri_id AND c.bucket = h.bucket " +
+            "WHEN MATCHED THEN UPDATE SET hits = c.hits + h.hits " +
+            "WHEN NOT MATCHED THEN INSERT (app_id, uri_id, bucket, hits) " +
+            "VALUES (h.app_id, h.uri_id, h.bucket, h.hits)",
+            nativeQuery = true)
+    int rollup(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query(value = "MERGE INTO endpoint_hit_counters c " +
+            "USING (SELECT CAST(:appId AS INTEGER) AS app_id, CAST(:uriId AS BIGINT) AS uri_id, " +
+            "       DATE_TRUNC('HOUR', CAST(:timestamp AS TIMESTAMP)) AS bucket) h " +
+            "ON c.app_id = h.app_id AND c.uri_id = h.uri_id AND c.bucket = h.bucket " +
+            "WHEN MATCHED THEN UPDATE SET hits = c.hits + 1 " +
+            "WHEN NOT MATCHED THEN INSERT (app_id, uri_id, bucket, hits) VALUES (h.app_id, h.uri_id, h.bucket, 1)",
+            nativeQuery = true)
+    int increment(@Param("appId") Integer appId, @Param("uriId") Long uriId,
+                  @Param("timestamp") LocalDateTime timestamp);
+
+    @Query("SELECT new ru.practicum.dto.ViewStatsDto(a.name, u.uri, h.hits) " +
+            "FROM (SELECT c.appId AS appId, c.uriId AS uriId, SUM(c.hits) AS hits " +
+            "      FROM HitCounter c " +
+            "      WHERE c.bucket >= :from AND c.bucket < :to " +
+            "      AND c.uriId IN :uriIds " +
+            DIMENSIONS_FILTER +
+            "      GROUP BY c.appId, c.uriId) h " +
+            StatRepository.DIMENSIONS_JOIN)
+    List<ViewStatsDto> sumHitsByUris(@Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to,
+                                     @Param("uriIds") Collection<Long> uriIds,
+                                     @Param("appId") Integer appId,
+                                     @Param("uriPattern") String uriPattern);
+
+    @Query("SELECT new ru.practicum.dto.ViewStatsDto(a.name, u.uri, h.hits) " +
+            "FROM (SELECT c.appId AS appId, c.uriId AS uriId, SUM(c.hits) AS hits " +
+            "      FROM HitCounter c " +
+            "      WHERE c.bucket >= :from AND c.bucket < :to " +
+            DIMENSIONS_FILTER +
+            "      GROUP BY c.appId, c.uriId) h " +
+            StatRepository.DIMENSIONS_JOIN)
+    List<ViewStatsDto> sumHitsAll(@Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to,
+                                  @Param("appId") Integer appId,
+                                  @Param("uriPattern") String uriPattern);
+}
@@ -0,0 +1,47 @@
+package ru.practicum.statservice.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.statservice.model.HitCounterId;
+import ru.practicum.statservice.model.HitSketch;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface HitSketchRepository extends JpaRepository<HitSketch, HitCounterId> {
+
+    // Необязательные фильтры по id приложения и префиксу uri (null - без фильтра)
+    String DIMENSIONS_FILTER = "AND (:appId IS NULL OR s.appId = :appId) " +
+            "AND (:uriPattern IS NULL OR s.uriId IN " +
+            "     (SELECT f.id FROM HitUri f WHERE f.uri LIKE :uriPattern ESCAPE '\\')) ";
+
+    List<HitSketch> findAllByBucket(LocalDateTime bucket);
+
+    List<HitSketch> findAllByBucketGreaterThanEqualAndBucketLessThan(LocalDateTime from, LocalDateTime to);
+
+    @Query("SELECT MIN(s.bucket) FROM HitSketch s")
+    LocalDateTime findMinBucket();
+
+    @Query("SELECT s FROM HitSketch s " +
+            "WHERE s.bucket >= :from AND s.bucket < :to " +
+            "AND s.uriId IN :uriIds " +
+            DIMENSIONS_FILTER)
+    List<HitSketch> findInRangeByUris(@Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to,
+                                      @Param("uriIds") Collection<Long> uriIds,
+                                      @Param("appId") Integer appId,
+                                      @Param("uriPattern") String uriPattern,
+                                      Pageable pageable);
+
+    @Query("SELECT s FROM HitSketch s " +
+            "WHERE s.bucket >= :from AND s.bucket < :to " +
+            DIMENSIONS_FILTER)
+    List<HitSketch> findInRangeAll(@Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to,
+                                   @Param("appId") Integer appId,
+                                   @Param("uriPattern") String uriPattern,
+                                   Pageable pageable);
+}
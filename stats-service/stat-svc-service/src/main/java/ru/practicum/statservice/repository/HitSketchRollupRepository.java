@@ -0,0 +1,41 @@
+package ru.practicum.statservice.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.statservice.model.HitSketchRollup;
+import ru.practicum.statservice.model.HitSketchRollupId;
+import ru.practicum.statservice.sketch.SketchGranularity;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface HitSketchRollupRepository extends JpaRepository<HitSketchRollup, HitSketchRollupId> {
+
+    List<HitSketchRollup> findAllByGranularityAndBucketGreaterThanEqualAndBucketLessThan(
+            SketchGranularity granularity, LocalDateTime from, LocalDateTime to);
+
+    @Query("SELECT s FROM HitSketchRollup s " +
+            "WHERE s.granularity = :granularity AND s.bucket >= :from AND s.bucket < :to " +
+            "AND s.uriId IN :uriIds " +
+            HitSketchRepository.DIMENSIONS_FILTER)
+    List<HitSketchRollup> findInRangeByUris(@Param("granularity") SketchGranularity granularity,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to,
+                                            @Param("uriIds") Collection<Long> uriIds,
+                                            @Param("appId") Integer appId,
+                                            @Param("uriPattern") String uriPattern,
+                                            Pageable pageable);
+
+    @Query("SELECT s FROM HitSketchRollup s " +
+            "WHERE s.granularity = :granularity AND s.bucket >= :from AND s.bucket < :to " +
+            HitSketchRepository.DIMENSIONS_FILTER)
+    List<HitSketchRollup> findInRangeAll(@Param("granularity") SketchGranularity granularity,
+                                         @Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to,
+                                         @Param("appId") Integer appId,
+                                         @Param("uriPattern") String uriPattern,
+                                         Pageable pageable);
+}
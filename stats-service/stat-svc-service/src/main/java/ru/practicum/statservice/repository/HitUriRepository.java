@@ -0,0 +1,25 @@
+package ru.practicum.statservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.statservice.model.HitUri;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface HitUriRepository extends JpaRepository<HitUri, Long> {
+    Optional<HitUri> findByUri(String uri);
+
+    List<HitUri> findAllByUriIn(Collection<String> uris);
+
+    @Modifying
+    @Query(value = "MERGE INTO hit_uris u " +
+            "USING (SELECT CAST(:uri AS VARCHAR(2048)) AS uri) s " +
+            "ON u.uri = s.uri " +
+            "WHEN NOT MATCHED THEN INSERT (uri) VALUES (s.uri)",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("uri") String uri);
+}
@@ -0,0 +1,17 @@
+package ru.practicum.statservice.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.statservice.model.RollupState;
+
+import java.util.Optional;
+
+public interface RollupStateRepository extends JpaRepository<RollupState, Integer> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM RollupState s WHERE s.id = :id")
+    Optional<RollupState> findForUpdate(@Param("id") Integer id);
+}
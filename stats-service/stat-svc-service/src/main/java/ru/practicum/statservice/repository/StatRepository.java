@@ -1,53 +1,215 @@
 package ru.practicum.statservice.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.statservice.model.EndpointHit;
+import ru.practicum.statservice.model.HitIpKey;
+import ru.practicum.statservice.model.HitRow;
+import ru.practicum.statservice.model.ResourceHits;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface StatRepository extends JpaRepository<EndpointHit, Long> {
 
+    // Группировка идёт по целочисленным app_id/uri_id, строки подтягиваются из словарей только для итоговых строк
+
+    String DIMENSIONS_JOIN = "JOIN HitApp a ON a.id = h.appId " +
+            "JOIN HitUri u ON u.id = h.uriId ";
+
+    // Необязательные фильтры по id приложения и префиксу uri (null - без фильтра). Сравниваются внешние ключи,
+    // словарь uri читается только подзапросом при заданном префиксе
+    String DIMENSIONS_FILTER = "      AND (:appId IS NULL OR e.app.id = :appId) " +
+            "      AND (:uriPattern IS NULL OR e.uri.id IN " +
+            "           (SELECT f.id FROM HitUri f WHERE f.uri LIKE :uriPattern ESCAPE '\\')) ";
+
     // === УНИКАЛЬНЫЕ ХИТЫ ===
 
-    @Query("SELECT new ru.practicum.dto.ViewStatsDto(e.app, e.uri, COUNT(DISTINCT e.ip)) " +
-            "FROM EndpointHit e " +
-            "WHERE e.timestamp BETWEEN :start AND :end " +
-            "AND e.uri IN :uris " +
-            "GROUP BY e.app, e.uri " +
-            "ORDER BY COUNT(DISTINCT e.ip) DESC")
+    @Query("SELECT new ru.practicum.dto.ViewStatsDto(a.name, u.uri, h.hits) " +
+            "FROM (SELECT e.app.id AS appId, e.uri.id AS uriId, COUNT(DISTINCT e.ip) AS hits " +
+            "      FROM EndpointHit e " +
+            "      WHERE e.timestamp BETWEEN :start AND :end " +
+            "      AND e.uri.id IN :uriIds " +
+            DIMENSIONS_FILTER +
+            "      GROUP BY e.app.id, e.uri.id) h " +
+            DIMENSIONS_JOIN +
+            "ORDER BY h.hits DESC")
     List<ViewStatsDto> findUniqueHitsByUris(@Param("start") LocalDateTime start,
                                             @Param("end") LocalDateTime end,
-                                            @Param("uris") List<String> uris);
+                                            @Param("uriIds") Collection<Long> uriIds,
+                                            @Param("appId") Integer appId,
+                                            @Param("uriPattern") String uriPattern,
+                                            Pageable pageable);
 
-    @Query("SELECT new ru.practicum.dto.ViewStatsDto(e.app, e.uri, COUNT(DISTINCT e.ip)) " +
-            "FROM EndpointHit e " +
-            "WHERE e.timestamp BETWEEN :start AND :end " +
-            "GROUP BY e.app, e.uri " +
-            "ORDER BY COUNT(DISTINCT e.ip) DESC")
+    @Query("SELECT new ru.practicum.dto.ViewStatsDto(a.name, u.uri, h.hits) " +
+            "FROM (SELECT e.app.id AS appId, e.uri.id AS uriId, COUNT(DISTINCT e.ip) AS hits " +
+            "      FROM EndpointHit e " +
+            "      WHERE e.timestamp BETWEEN :start AND :end " +
+            DIMENSIONS_FILTER +
+            "      GROUP BY e.app.id, e.uri.id) h " +
+            DIMENSIONS_JOIN +
+            "ORDER BY h.hits DESC")
     List<ViewStatsDto> findUniqueHitsAll(@Param("start") LocalDateTime start,
-                                         @Param("end") LocalDateTime end);
+                                         @Param("end") LocalDateTime end,
+                                         @Param("appId") Integer appId,
+                                         @Param("uriPattern") String uriPattern,
+                                         Pageable pageable);
+
+    // === ПОТОКОВАЯ ВЫГРУЗКА (курсор БД, строки читаются порциями по STREAM_FETCH_SIZE) ===
+
+    String STREAM_FETCH_SIZE = "500";
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new ru.practicum.dto.ViewStatsDto(a.name, u.uri, h.hits) " +
+            "FROM (SELECT e.app.id AS appId, e.uri.id AS uriId, COUNT(DISTINCT e.ip) AS hits " +
+            "      FROM EndpointHit e " +
+            "      WHERE e.timestamp BETWEEN :start AND :end " +
+            "      AND e.uri.id IN :uriIds " +
+            DIMENSIONS_FILTER +
+            "      GROUP BY e.app.id, e.uri.id) h " +
+            DIMENSIONS_JOIN +
+            "ORDER BY h.hits DESC")
+    Stream<ViewStatsDto> streamUniqueHitsByUris(@Param("start") LocalDateTime start,
+                                                @Param("end") LocalDateTime end,
+                                                @Param("uriIds") Collection<Long> uriIds,
+                                                @Param("appId") Integer appId,
+                                                @Param("uriPattern") String uriPattern);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new ru.practicum.dto.ViewStatsDto(a.name, u.uri, h.hits) " +
+            "FROM (SELECT e.app.id AS appId, e.uri.id AS uriId, COUNT(DISTINCT e.ip) AS hits " +
+            "      FROM EndpointHit e " +
+            "      WHERE e.timestamp BETWEEN :start AND :end " +
+            DIMENSIONS_FILTER +
+            "      GROUP BY e.app.id, e.uri.id) h " +
+            DIMENSIONS_JOIN +
+            "ORDER BY h.hits DESC")
+    Stream<ViewStatsDto> streamUniqueHitsAll(@Param("start") LocalDateTime start,
+                                             @Param("end") LocalDateTime end,
+                                             @Param("appId") Integer appId,
+                                             @Param("uriPattern") String uriPattern);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new ru.practicum.dto.ViewStatsDto(a.name, u.uri, h.hits) " +
+            "FROM (SELECT e.app.id AS appId, e.uri.id AS uriId, COUNT(e.ip) AS hits " +
+            "      FROM EndpointHit e " +
+            "      WHERE e.timestamp BETWEEN :start AND :end " +
+            "      AND e.uri.id IN :uriIds " +
+            DIMENSIONS_FILTER +
+            "      GROUP BY e.app.id, e.uri.id) h " +
+            DIMENSIONS_JOIN +
+            "ORDER BY h.hits DESC")
+    Stream<ViewStatsDto> streamAllHitsByUris(@Param("start") LocalDateTime start,
+                                             @Param("end") LocalDateTime end,
+                                             @Param("uriIds") Collection<Long> uriIds,
+                                             @Param("appId") Integer appId,
+                                             @Param("uriPattern") String uriPattern);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new ru.practicum.dto.ViewStatsDto(a.name, u.uri, h.hits) " +
+            "FROM (SELECT e.app.id AS appId, e.uri.id AS uriId, COUNT(e.ip) AS hits " +
+            "      FROM EndpointHit e " +
+            "      WHERE e.timestamp BETWEEN :start AND :end " +
+            DIMENSIONS_FILTER +
+            "      GROUP BY e.app.id, e.uri.id) h " +
+            DIMENSIONS_JOIN +
+            "ORDER BY h.hits DESC")
+    Stream<ViewStatsDto> streamAllHitsAll(@Param("start") LocalDateTime start,
+                                          @Param("end") LocalDateTime end,
+                                          @Param("appId") Integer appId,
+                                          @Param("uriPattern") String uriPattern);
+
+    // === СЫРЫЕ ХИТЫ В ПОЛУОТКРЫТОМ ИНТЕРВАЛЕ (для стыковки с корзинами) ===
 
-    // === НЕ УНИКАЛЬНЫЕ ХИТЫ ===
+    @Query("SELECT MIN(e.timestamp) FROM EndpointHit e")
+    LocalDateTime findMinTimestamp();
 
-    @Query("SELECT new ru.practicum.dto.ViewStatsDto(e.app, e.uri, COUNT(e.ip)) " +
+    @Query("SELECT new ru.practicum.dto.ViewStatsDto(a.name, u.uri, h.hits) " +
+            "FROM (SELECT e.app.id AS appId, e.uri.id AS uriId, COUNT(e.ip) AS hits " +
+            "      FROM EndpointHit e " +
+            "      WHERE e.timestamp >= :from AND e.timestamp < :to " +
+            "      AND e.uri.id IN :uriIds " +
+            DIMENSIONS_FILTER +
+            "      GROUP BY e.app.id, e.uri.id) h " +
+            DIMENSIONS_JOIN)
+    List<ViewStatsDto> countHitsInRangeByUris(@Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              @Param("uriIds") Collection<Long> uriIds,
+                                              @Param("appId") Integer appId,
+                                              @Param("uriPattern") String uriPattern);
+
+    @Query("SELECT new ru.practicum.dto.ViewStatsDto(a.name, u.uri, h.hits) " +
+            "FROM (SELECT e.app.id AS appId, e.uri.id AS uriId, COUNT(e.ip) AS hits " +
+            "      FROM EndpointHit e " +
+            "      WHERE e.timestamp >= :from AND e.timestamp < :to " +
+            DIMENSIONS_FILTER +
+            "      GROUP BY e.app.id, e.uri.id) h " +
+            DIMENSIONS_JOIN)
+    List<ViewStatsDto> countHitsInRangeAll(@Param("from") LocalDateTime from,
+                                           @Param("to") LocalDateTime to,
+                                           @Param("appId") Integer appId,
+                                           @Param("uriPattern") String uriPattern);
+
+    @Query("SELECT DISTINCT new ru.practicum.statservice.model.HitIpKey(e.app.id, e.uri.id, e.ip) " +
             "FROM EndpointHit e " +
-            "WHERE e.timestamp BETWEEN :start AND :end " +
-            "AND e.uri IN :uris " +
-            "GROUP BY e.app, e.uri " +
-            "ORDER BY COUNT(e.ip) DESC")
-    List<ViewStatsDto> findAllHitsByUris(@Param("start") LocalDateTime start,
-                                         @Param("end") LocalDateTime end,
-                                         @Param("uris") List<String> uris);
+            "WHERE e.timestamp >= :from AND e.timestamp < :to " +
+            "      AND e.uri.id IN :uriIds " +
+            DIMENSIONS_FILTER)
+    List<HitIpKey> findDistinctIpsInRangeByUris(@Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to,
+                                                @Param("uriIds") Collection<Long> uriIds,
+                                                @Param("appId") Integer appId,
+                                                @Param("uriPattern") String uriPattern);
+
+    @Query("SELECT DISTINCT new ru.practicum.statservice.model.HitIpKey(e.app.id, e.uri.id, e.ip) " +
+            "FROM EndpointHit e " +
+            "WHERE e.timestamp >= :from AND e.timestamp < :to " +
+            DIMENSIONS_FILTER)
+    List<HitIpKey> findDistinctIpsInRangeAll(@Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to,
+                                             @Param("appId") Integer appId,
+                                             @Param("uriPattern") String uriPattern);
+
+    // === ХИТЫ ПО ID РЕСУРСА (resource_type, resource_id) ===
 
-    @Query("SELECT new ru.practicum.dto.ViewStatsDto(e.app, e.uri, COUNT(e.ip)) " +
+    @Query("SELECT new ru.practicum.statservice.model.ResourceHits(e.resourceId, COUNT(DISTINCT e.ip)) " +
             "FROM EndpointHit e " +
-            "WHERE e.timestamp BETWEEN :start AND :end " +
-            "GROUP BY e.app, e.uri " +
-            "ORDER BY COUNT(e.ip) DESC")
-    List<ViewStatsDto> findAllHitsAll(@Param("start") LocalDateTime start,
-                                      @Param("end") LocalDateTime end);
+            "WHERE e.resourceType = :type AND e.resourceId IN :ids " +
+            "AND e.timestamp BETWEEN :start AND :end " +
+            "GROUP BY e.resourceId")
+    List<ResourceHits> findUniqueHitsByResourceIds(@Param("type") String type,
+                                                   @Param("ids") Collection<Long> ids,
+                                                   @Param("start") LocalDateTime start,
+                                                   @Param("end") LocalDateTime end);
+
+    @Query("SELECT new ru.practicum.statservice.model.ResourceHits(e.resourceId, COUNT(e.ip)) " +
+            "FROM EndpointHit e " +
+            "WHERE e.resourceType = :type AND e.resourceId IN :ids " +
+            "AND e.timestamp BETWEEN :start AND :end " +
+            "GROUP BY e.resourceId")
+    List<ResourceHits> findAllHitsByResourceIds(@Param("type") String type,
+                                                @Param("ids") Collection<Long> ids,
+                                                @Param("start") LocalDateTime start,
+                                                @Param("end") LocalDateTime end);
+
+    // === ЗАГРУЗКА КОЛОНОЧНОГО ХРАНИЛИЩА ===
+
+    @Query("SELECT new ru.practicum.statservice.model.HitRow(e.id, e.app.name, e.uri.uri, e.ip, e.timestamp) " +
+            "FROM EndpointHit e " +
+            "WHERE e.timestamp >= :since AND e.id > :afterId " +
+            "ORDER BY e.id")
+    List<HitRow> findRowsSinceAfterId(@Param("since") LocalDateTime since,
+                                      @Param("afterId") Long afterId,
+                                      Pageable pageable);
+
+    @Query("SELECT e.id FROM EndpointHit e WHERE e.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,13 @@
+package ru.practicum.statservice.service;
+
+import java.util.List;
+
+/**
+ * Условия /stats, переведённые в id словарей: хиты, корзины и скетчи фильтруются по числовым колонкам
+ * без соединения со словарями. uriIds == null - все uri, appId == null - все приложения.
+ */
+public record DimensionFilter(List<Long> uriIds, Integer appId, String uriPattern) {
+    public boolean allUris() {
+        return uriIds == null;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.statservice.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Переводит endpoint_hits со строковых app/uri на словари hit_apps/hit_uris. Выполняется до старта веб-сервера,
+// чтобы приём хитов сразу шёл в новые колонки; на уже переведённой схеме ничего не делает
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitDimensionMigration {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        if (!hasLegacyColumns()) {
+            return;
+        }
+
+        log.info("Перенос app/uri из endpoint_hits в словари");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO hit_apps (name) " +
+                    "SELECT DISTINCT h.app FROM endpoint_hits h " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM hit_apps a WHERE a.name = h.app)");
+            jdbcTemplate.update("INSERT INTO hit_uris (uri) " +
+                    "SELECT DISTINCT h.uri FROM endpoint_hits h " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM hit_uris u WHERE u.uri = h.uri)");
+
+            int updated = jdbcTemplate.update("UPDATE endpoint_hits h " +
+                    "SET app_id = (SELECT a.id FROM hit_apps a WHERE a.name = h.app), " +
+                    "uri_id = (SELECT u.id FROM hit_uris u WHERE u.uri = h.uri) " +
+                    "WHERE h.app_id IS NULL OR h.uri_id IS NULL");
+
+            jdbcTemplate.execute("ALTER TABLE endpoint_hits ALTER COLUMN app_id SET NOT NULL");
+            jdbcTemplate.execute("ALTER TABLE endpoint_hits ALTER COLUMN uri_id SET NOT NULL");
+            jdbcTemplate.execute("DROP INDEX IF EXISTS idx_endpoint_hits_uri");
+            jdbcTemplate.execute("DROP INDEX IF EXISTS idx_endpoint_hits_app_uri");
+            jdbcTemplate.execute("ALTER TABLE endpoint_hits DROP COLUMN app");
+            jdbcTemplate.execute("ALTER TABLE endpoint_hits DROP COLUMN uri");
+
+            log.info("Хитов переведено на словари: {}", updated);
+        });
+    }
+
+    private boolean hasLegacyColumns() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE UPPER(TABLE_NAME) = 'ENDPOINT_HITS' AND UPPER(COLUMN_NAME) = 'URI' " +
+                "AND TABLE_SCHEMA = CURRENT_SCHEMA", Integer.class);
+        return count != null && count > 0;
+    }
+}
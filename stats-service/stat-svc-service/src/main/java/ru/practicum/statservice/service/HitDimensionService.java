@@ -0,0 +1,188 @@
+package ru.practicum.statservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statservice.model.HitApp;
+import ru.practicum.statservice.model.HitKey;
+import ru.practicum.statservice.model.HitUri;
+import ru.practicum.statservice.repository.HitAppRepository;
+import ru.practicum.statservice.repository.HitUriRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Словари app и uri для endpoint_hits. Соответствие строка -> id кэшируется, так что на горячем пути записи
+ * хита обращения к словарным таблицам нет. Значения разрешаются до открытия транзакции хита: новое значение
+ * вставляется в своей короткой транзакции, и запись хита не держит одновременно два соединения из пула.
+ * На чтении фильтры /stats переводятся в id, а строки подтягиваются только для итоговых пар.
+ */
+@Service
+public class HitDimensionService {
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private final HitAppRepository appRepository;
+    private final HitUriRepository uriRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, HitApp> apps = new ConcurrentHashMap<>();
+    private final Map<String, HitUri> uris;
+
+    public HitDimensionService(HitAppRepository appRepository,
+                               HitUriRepository uriRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${stats.dimensions.uri-cache-size:100000}") int uriCacheSize) {
+        this.appRepository = appRepository;
+        this.uriRepository = uriRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.uris = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HitUri> eldest) {
+                return size() > uriCacheSize;
+            }
+        };
+    }
+
+    // Вставка идёт вне computeIfAbsent, чтобы обращение к БД не держало блокировку корзины карты
+    public HitApp resolveApp(String name) {
+        HitApp cached = apps.get(name);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        HitApp resolved = insertIfAbsent(
+                () -> appRepository.insertIfAbsent(name),
+                () -> appRepository.findByName(name).orElseThrow());
+        HitApp previous = apps.putIfAbsent(name, resolved);
+        return previous != null ? previous : resolved;
+    }
+
+    public HitUri resolveUri(String uri) {
+        synchronized (uris) {
+            HitUri cached = uris.get(uri);
+
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        HitUri resolved = insertIfAbsent(
+                () -> uriRepository.insertIfAbsent(uri),
+                () -> uriRepository.findByUri(uri).orElseThrow());
+
+        synchronized (uris) {
+            uris.put(uri, resolved);
+        }
+
+        return resolved;
+    }
+
+    // Фильтр /stats в id словарей, без вставки новых значений. Пусто - приложения или ни одного из uri нет
+    // в словаре, выборка заведомо пуста
+    public Optional<DimensionFilter> resolve(List<String> uriValues, StatsFilter filter) {
+        Integer appId = null;
+
+        if (filter.app() != null) {
+            HitApp app = apps.get(filter.app());
+
+            if (app == null) {
+                app = appRepository.findByName(filter.app()).orElse(null);
+
+                if (app == null) {
+                    return Optional.empty();
+                }
+
+                apps.putIfAbsent(app.getName(), app);
+            }
+
+            appId = app.getId();
+        }
+
+        List<Long> uriIds = null;
+
+        if (uriValues != null && !uriValues.isEmpty()) {
+            uriIds = findUris(uriValues).stream()
+                    .map(HitUri::getId)
+                    .toList();
+
+            if (uriIds.isEmpty()) {
+                return Optional.empty();
+            }
+        }
+
+        return Optional.of(new DimensionFilter(uriIds, appId, filter.uriPattern()));
+    }
+
+    // Строки словарей для итоговых пар (app_id, uri_id)
+    public List<ViewStatsDto> toStats(Map<HitKey, Long> hits) {
+        Map<Integer, String> appNames = new HashMap<>();
+        Map<Long, String> uriValues = new HashMap<>();
+        List<Integer> appIds = hits.keySet().stream().map(HitKey::appId).distinct().toList();
+        List<Long> uriIds = hits.keySet().stream().map(HitKey::uriId).distinct().toList();
+
+        appRepository.findAllById(appIds).forEach(app -> appNames.put(app.getId(), app.getName()));
+
+        for (int i = 0; i < uriIds.size(); i += LOOKUP_BATCH_SIZE) {
+            uriRepository.findAllById(uriIds.subList(i, Math.min(i + LOOKUP_BATCH_SIZE, uriIds.size())))
+                    .forEach(uri -> uriValues.put(uri.getId(), uri.getUri()));
+        }
+
+        return hits.entrySet().stream()
+                .map(entry -> new ViewStatsDto(appNames.get(entry.getKey().appId()),
+                        uriValues.get(entry.getKey().uriId()), entry.getValue()))
+                .toList();
+    }
+
+    private List<HitUri> findUris(Collection<String> values) {
+        List<HitUri> found = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+
+        synchronized (uris) {
+            for (String value : new LinkedHashSet<>(values)) {
+                HitUri cached = uris.get(value);
+
+                if (cached != null) {
+                    found.add(cached);
+                } else {
+                    missing.add(value);
+                }
+            }
+        }
+
+        for (int i = 0; i < missing.size(); i += LOOKUP_BATCH_SIZE) {
+            List<HitUri> loaded = uriRepository.findAllByUriIn(
+                    missing.subList(i, Math.min(i + LOOKUP_BATCH_SIZE, missing.size())));
+
+            synchronized (uris) {
+                loaded.forEach(uri -> uris.put(uri.getUri(), uri));
+            }
+
+            found.addAll(loaded);
+        }
+
+        return found;
+    }
+
+    // Параллельная вставка того же значения с другого узла может упасть на уникальном индексе - тогда оно уже есть
+    private <T> T insertIfAbsent(Runnable insert, Supplier<T> find) {
+        try {
+            return transactionTemplate.execute(status -> {
+                insert.run();
+                return find.get();
+            });
+        } catch (DataIntegrityViolationException e) {
+            return transactionTemplate.execute(status -> find.get());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.statservice.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statservice.model.IpAddressConverter;
+
+import java.util.List;
+
+// Переводит текстовый endpoint_hits.ip в бинарный ip_address пакетами по id. Выполняется до старта веб-сервера;
+// после сбоя продолжает с хитов, у которых ip_address ещё не заполнен
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitIpMigration {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${stats.ip-migration.batch-size:5000}")
+    private int batchSize;
+
+    @PostConstruct
+    public void migrate() {
+        if (!hasLegacyColumn()) {
+            return;
+        }
+
+        log.info("Перевод IP хитов в бинарный вид");
+
+        long afterId = 0L;
+        int converted = 0;
+
+        while (true) {
+            long from = afterId;
+            List<Object[]> batch = transactionTemplate.execute(status -> {
+                List<Object[]> rows = jdbcTemplate.query("SELECT id, ip FROM endpoint_hits " +
+                                "WHERE ip_address IS NULL AND id > ? ORDER BY id LIMIT ?",
+                        (rs, rowNum) -> new Object[]{IpAddressConverter.encode(rs.getString("ip")), rs.getLong("id")},
+                        from, batchSize);
+
+                jdbcTemplate.batchUpdate("UPDATE endpoint_hits SET ip_address = ? WHERE id = ?", rows);
+                return rows;
+            });
+
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+
+            converted += batch.size();
+            afterId = (Long) batch.getLast()[1];
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE endpoint_hits ALTER COLUMN ip_address SET NOT NULL");
+            jdbcTemplate.execute("ALTER TABLE endpoint_hits DROP COLUMN ip");
+        });
+
+        log.info("IP переведены в бинарный вид: {} хитов", converted);
+    }
+
+    private boolean hasLegacyColumn() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE UPPER(TABLE_NAME) = 'ENDPOINT_HITS' AND UPPER(COLUMN_NAME) = 'IP' " +
+                "AND TABLE_SCHEMA = CURRENT_SCHEMA", Integer.class);
+        return count != null && count > 0;
+    }
+}
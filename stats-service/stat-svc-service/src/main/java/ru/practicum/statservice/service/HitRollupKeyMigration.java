@@ -0,0 +1,72 @@
+package ru.practicum.statservice.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+// Переводит корзины и скетчи со строковых app/uri на id словарей hit_apps/hit_uris. Выполняется до старта
+// веб-сервера; на уже переведённой схеме ничего не делает
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitRollupKeyMigration {
+    private static final List<String> TABLES = List.of("endpoint_hit_counters", "endpoint_hit_sketches");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        for (String table : TABLES) {
+            if (hasLegacyColumns(table)) {
+                migrate(table);
+            }
+        }
+    }
+
+    private void migrate(String table) {
+        log.info("Перенос app/uri из {} в словари", table);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO hit_apps (name) " +
+                    "SELECT DISTINCT t.app FROM " + table + " t " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM hit_apps a WHERE a.name = t.app)");
+            jdbcTemplate.update("INSERT INTO hit_uris (uri) " +
+                    "SELECT DISTINCT t.uri FROM " + table + " t " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM hit_uris u WHERE u.uri = t.uri)");
+
+            int updated = jdbcTemplate.update("UPDATE " + table + " t " +
+                    "SET app_id = (SELECT a.id FROM hit_apps a WHERE a.name = t.app), " +
+                    "uri_id = (SELECT u.id FROM hit_uris u WHERE u.uri = t.uri) " +
+                    "WHERE t.app_id IS NULL OR t.uri_id IS NULL");
+
+            // Имя первичного ключа зависит от СУБД, поэтому берётся из INFORMATION_SCHEMA
+            for (String constraint : jdbcTemplate.queryForList("SELECT CONSTRAINT_NAME " +
+                    "FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS " +
+                    "WHERE UPPER(TABLE_NAME) = UPPER(?) AND CONSTRAINT_TYPE = 'PRIMARY KEY' " +
+                    "AND TABLE_SCHEMA = CURRENT_SCHEMA", String.class, table)) {
+                jdbcTemplate.execute("ALTER TABLE " + table + " DROP CONSTRAINT " + constraint);
+            }
+
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN app_id SET NOT NULL");
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN uri_id SET NOT NULL");
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN app");
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN uri");
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD PRIMARY KEY (app_id, uri_id, bucket)");
+
+            log.info("Строк {} переведено на словари: {}", table, updated);
+        });
+    }
+
+    private boolean hasLegacyColumns(String table) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE UPPER(TABLE_NAME) = UPPER(?) AND UPPER(COLUMN_NAME) = 'URI' " +
+                "AND TABLE_SCHEMA = CURRENT_SCHEMA", Integer.class, table);
+        return count != null && count > 0;
+    }
+}
@@ -0,0 +1,223 @@
+package ru.practicum.statservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statservice.model.EndpointHit;
+import ru.practicum.statservice.model.HitKey;
+import ru.practicum.statservice.model.RollupState;
+import ru.practicum.statservice.repository.HitCounterRepository;
+import ru.practicum.statservice.repository.RollupStateRepository;
+import ru.practicum.statservice.repository.StatRepository;
+import ru.practicum.statservice.sketch.HyperLogLog;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class HitRollupService {
+    private final StatRepository statRepository;
+    private final HitCounterRepository counterRepository;
+    private final RollupStateRepository stateRepository;
+    private final HitSketchService sketchService;
+    private final HitDimensionService dimensionService;
+
+    @Value("${stats.rollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${stats.rollup.lag:10m}")
+    private Duration lag;
+
+    @Value("${stats.rollup.max-span:1d}")
+    private Duration maxSpan;
+
+    @Scheduled(fixedDelayString = "${stats.rollup.interval:60000}")
+    @Transactional
+    public void rollup() {
+        if (!enabled) {
+            return;
+        }
+
+        RollupState state = stateRepository.findForUpdate(RollupState.ID)
+                .orElseGet(() -> stateRepository.save(new RollupState(RollupState.ID, null, null)));
+
+        LocalDateTime target = floorHour(LocalDateTime.now().minus(lag));
+        LocalDateTime from = state.getWatermark();
+
+        if (from == null) {
+            LocalDateTime first = statRepository.findMinTimestamp();
+            from = first != null ? floorHour(first) : target;
+        }
+
+        LocalDateTime to = from.plus(maxSpan).isBefore(target) ? floorHour(from.plus(maxSpan)) : target;
+
+        if (to.isAfter(from)) {
+            int buckets = counterRepository.rollup(from, to);
+            sketchService.update(from, to);
+            state.setWatermark(to);
+            log.info("Свёрнуты хиты за [{}, {}): корзин обновлено {}", from, to, buckets);
+        } else {
+            state.setWatermark(from);
+        }
+
+        // Суточные и месячные скетчи догоняют отметку свёртки, в том числе по истории до их появления
+        state.setSketchWatermark(sketchService.compact(state.getSketchWatermark(), state.getWatermark()));
+    }
+
+    // Хиты, пришедшие после того, как их час уже свёрнут, добавляются прямо в корзину
+    @Transactional
+    public void registerLateHits(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDateTime threshold = LocalDateTime.now().minus(lag);
+        List<EndpointHit> late = hits.stream()
+                .filter(hit -> hit.getTimestamp().isBefore(threshold))
+                .toList();
+
+        if (late.isEmpty()) {
+            return;
+        }
+
+        // Исключительная блокировка: запись скетча - чтение, слияние регистров и сохранение строки, поэтому
+        // параллельные догоняющие хиты и свёртка в одну корзину не должны пересекаться
+        RollupState state = stateRepository.findForUpdate(RollupState.ID).orElse(null);
+
+        if (state == null || state.getWatermark() == null) {
+            return;
+        }
+
+        for (EndpointHit hit : late) {
+            if (hit.getTimestamp().isBefore(state.getWatermark())) {
+                counterRepository.increment(hit.getApp().getId(), hit.getUri().getId(), hit.getTimestamp());
+                sketchService.add(hit, state.getSketchWatermark());
+            }
+        }
+    }
+
+    // Полные часы берутся из корзин, края интервала и ещё не свёрнутый хвост - из сырых хитов
+    public List<ViewStatsDto> getHits(LocalDateTime start, LocalDateTime end, DimensionFilter dimensions,
+                                      StatsFilter filter) {
+        LocalDateTime endExclusive = end.plus(1, ChronoUnit.MICROS);
+        LocalDateTime watermark = enabled ? stateRepository.findById(RollupState.ID)
+                .map(RollupState::getWatermark)
+                .orElse(null) : null;
+
+        if (watermark == null) {
+            return sorted(countRaw(start, endExclusive, dimensions), filter);
+        }
+
+        LocalDateTime rolledFrom = ceilHour(start);
+        LocalDateTime rolledTo = min(floorHour(endExclusive), watermark);
+
+        if (!rolledTo.isAfter(rolledFrom)) {
+            return sorted(countRaw(start, endExclusive, dimensions), filter);
+        }
+
+        List<ViewStatsDto> parts = new ArrayList<>();
+        parts.addAll(countRaw(start, rolledFrom, dimensions));
+        parts.addAll(dimensions.allUris()
+                ? counterRepository.sumHitsAll(rolledFrom, rolledTo, dimensions.appId(), dimensions.uriPattern())
+                : counterRepository.sumHitsByUris(rolledFrom, rolledTo, dimensions.uriIds(), dimensions.appId(),
+                dimensions.uriPattern()));
+        parts.addAll(countRaw(rolledTo, endExclusive, dimensions));
+
+        return sorted(parts, filter);
+    }
+
+    // Приближённый COUNT(DISTINCT ip): HyperLogLog-скетчи корзин объединяются с IP из несвёрнутых краёв.
+    // Строки app/uri подтягиваются из словарей только для пар, попавших в ответ. Пусто - скетчей слишком
+    // много, и точный подсчёт дешевле
+    public Optional<List<ViewStatsDto>> getUniqueHitsApproximate(LocalDateTime start, LocalDateTime end,
+                                                                 DimensionFilter dimensions, StatsFilter filter) {
+        LocalDateTime endExclusive = end.plus(1, ChronoUnit.MICROS);
+        RollupState state = enabled ? stateRepository.findById(RollupState.ID).orElse(null) : null;
+        LocalDateTime watermark = state != null ? state.getWatermark() : null;
+
+        LocalDateTime rolledFrom = ceilHour(start);
+        LocalDateTime rolledTo = watermark != null ? min(floorHour(endExclusive), watermark) : rolledFrom;
+        Map<HitKey, HyperLogLog> sketches;
+
+        if (rolledTo.isAfter(rolledFrom)) {
+            sketches = sketchService.load(rolledFrom, rolledTo, state.getSketchWatermark(), dimensions);
+
+            if (sketches == null) {
+                return Optional.empty();
+            }
+
+            sketchService.addRaw(sketches, start, rolledFrom, dimensions);
+            sketchService.addRaw(sketches, rolledTo, endExclusive, dimensions);
+        } else {
+            sketches = new HashMap<>();
+            sketchService.addRaw(sketches, start, endExclusive, dimensions);
+        }
+
+        Map<HitKey, Long> estimates = sketches.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().estimate()));
+
+        if (filter.limit() != null && estimates.size() > filter.limit()) {
+            estimates = estimates.entrySet().stream()
+                    .sorted(Map.Entry.<HitKey, Long>comparingByValue().reversed())
+                    .limit(filter.limit())
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        }
+
+        return Optional.of(filter.top(dimensionService.toStats(estimates)));
+    }
+
+    private List<ViewStatsDto> countRaw(LocalDateTime from, LocalDateTime to, DimensionFilter dimensions) {
+        if (!to.isAfter(from)) {
+            return List.of();
+        }
+
+        return dimensions.allUris()
+                ? statRepository.countHitsInRangeAll(from, to, dimensions.appId(), dimensions.uriPattern())
+                : statRepository.countHitsInRangeByUris(from, to, dimensions.uriIds(), dimensions.appId(),
+                dimensions.uriPattern());
+    }
+
+    // Части по одной паре (app, uri) складываются, затем отбираются top-N по фильтру
+    private List<ViewStatsDto> sorted(List<ViewStatsDto> parts, StatsFilter filter) {
+        Map<List<String>, ViewStatsDto> merged = new LinkedHashMap<>();
+
+        for (ViewStatsDto part : parts) {
+            merged.merge(List.of(part.getApp(), part.getUri()),
+                    new ViewStatsDto(part.getApp(), part.getUri(), part.getHits()),
+                    (left, right) -> {
+                        left.setHits(left.getHits() + right.getHits());
+                        return left;
+                    });
+        }
+
+        return filter.top(merged.values());
+    }
+
+    private static LocalDateTime floorHour(LocalDateTime time) {
+        return time.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static LocalDateTime ceilHour(LocalDateTime time) {
+        LocalDateTime floor = floorHour(time);
+        return floor.equals(time) ? floor : floor.plusHours(1);
+    }
+
+    private static LocalDateTime min(LocalDateTime left, LocalDateTime right) {
+        return left.isBefore(right) ? left : right;
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.statservice.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+// id хитов раньше выдавал IDENTITY, теперь endpoint_hits_seq, созданная с 1. На базе с хитами последовательность
+// один раз переставляется за максимальный id. Hibernate (pooled, allocationSize 50) выдаёт id из диапазона
+// (значение - 49, значение], поэтому запас равен размеру блока. Выполняется до старта веб-сервера
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitSequenceMigration {
+    private static final String MIGRATION = "endpoint-hits-seq";
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        if (isCompleted()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM endpoint_hits", Long.class);
+
+            if (maxId != null) {
+                jdbcTemplate.execute("ALTER SEQUENCE endpoint_hits_seq RESTART WITH " + (maxId + ALLOCATION_SIZE));
+                log.info("Последовательность endpoint_hits_seq переставлена за id {}", maxId);
+            }
+
+            jdbcTemplate.update("INSERT INTO stats_migrations (name, completed_at) " +
+                    "SELECT CAST(? AS VARCHAR(64)), CAST(? AS TIMESTAMP) " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM stats_migrations WHERE name = ?)", MIGRATION, LocalDateTime.now(),
+                    MIGRATION);
+        });
+    }
+
+    private boolean isCompleted() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_migrations WHERE name = ?",
+                Integer.class, MIGRATION);
+        return count != null && count > 0;
+    }
+}
@@ -0,0 +1,293 @@
+package ru.practicum.statservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.statservice.model.EndpointHit;
+import ru.practicum.statservice.model.HitCounterId;
+import ru.practicum.statservice.model.HitIpKey;
+import ru.practicum.statservice.model.HitKey;
+import ru.practicum.statservice.model.HitSketch;
+import ru.practicum.statservice.model.HitSketchRollup;
+import ru.practicum.statservice.model.HitSketchRollupId;
+import ru.practicum.statservice.repository.HitSketchRepository;
+import ru.practicum.statservice.repository.HitSketchRollupRepository;
+import ru.practicum.statservice.repository.StatRepository;
+import ru.practicum.statservice.sketch.HyperLogLog;
+import ru.practicum.statservice.sketch.SketchGranularity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ru.practicum.statservice.sketch.SketchGranularity.DAY;
+import static ru.practicum.statservice.sketch.SketchGranularity.HOUR;
+import static ru.practicum.statservice.sketch.SketchGranularity.MONTH;
+
+/**
+ * Скетчи уникальных IP по корзинам. Часовые пишутся при свёртке; завершённые сутки сворачиваются в суточные,
+ * завершённые месяцы - в месячные, так что запрос за длинный период объединяет десятки скетчей на uri,
+ * а не по одному на каждый час истории.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class HitSketchService {
+    private final StatRepository statRepository;
+    private final HitSketchRepository sketchRepository;
+    private final HitSketchRollupRepository rollupRepository;
+
+    // Больше скетчей в одном запросе - приближённый подсчёт дороже точного, вызывающий считает точно
+    @Value("${stats.unique.max-sketches:10000}")
+    private int maxSketches;
+
+    // Сколько суток сворачивается за один проход свёртки: история догоняется постепенно
+    @Value("${stats.unique.compact-days:7}")
+    private int compactDays;
+
+    // Как и add, выполняется под блокировкой строки hit_rollup_state
+    @Transactional
+    public void update(LocalDateTime from, LocalDateTime to) {
+        for (LocalDateTime bucket = from; bucket.isBefore(to); bucket = bucket.plusHours(1)) {
+            List<HitIpKey> keys = statRepository.findDistinctIpsInRangeAll(bucket, bucket.plusHours(1), null, null);
+
+            if (keys.isEmpty()) {
+                continue;
+            }
+
+            Map<HitKey, HitSketch> sketches = new HashMap<>();
+
+            for (HitSketch sketch : sketchRepository.findAllByBucket(bucket)) {
+                sketches.put(new HitKey(sketch.getAppId(), sketch.getUriId()), sketch);
+            }
+
+            Map<HitKey, HyperLogLog> updated = new HashMap<>();
+
+            for (HitIpKey key : keys) {
+                updated.computeIfAbsent(key.key(), d -> sketches.containsKey(d)
+                                ? HyperLogLog.fromBytes(sketches.get(d).getRegisters())
+                                : new HyperLogLog())
+                        .add(key.ip());
+            }
+
+            LocalDateTime current = bucket;
+            sketchRepository.saveAll(updated.entrySet().stream()
+                    .map(entry -> new HitSketch(entry.getKey().appId(), entry.getKey().uriId(), current,
+                            entry.getValue().toBytes()))
+                    .toList());
+        }
+    }
+
+    // Сворачивает часовые скетчи завершённых суток (раньше watermark) в суточные, а после последних суток
+    // месяца - суточные в месячный. Возвращает новую отметку: начало первых несвёрнутых суток.
+    // Выполняется под блокировкой строки hit_rollup_state
+    @Transactional
+    public LocalDateTime compact(LocalDateTime compacted, LocalDateTime watermark) {
+        LocalDateTime day = compacted;
+
+        if (day == null) {
+            LocalDateTime first = sketchRepository.findMinBucket();
+
+            if (first == null) {
+                return null;
+            }
+
+            day = DAY.floor(first);
+        }
+
+        LocalDateTime limit = DAY.floor(watermark);
+
+        for (int i = 0; i < compactDays && day.isBefore(limit); i++) {
+            LocalDateTime next = DAY.next(day);
+            Map<HitKey, HyperLogLog> daily = new HashMap<>();
+
+            for (HitSketch sketch : sketchRepository.findAllByBucketGreaterThanEqualAndBucketLessThan(day, next)) {
+                daily.computeIfAbsent(new HitKey(sketch.getAppId(), sketch.getUriId()), k -> new HyperLogLog())
+                        .merge(sketch.getRegisters());
+            }
+
+            saveRollups(DAY, day, daily);
+
+            if (MONTH.floor(next).equals(next)) {
+                LocalDateTime month = MONTH.floor(day);
+                Map<HitKey, HyperLogLog> monthly = new HashMap<>();
+
+                for (HitSketchRollup sketch : rollupRepository
+                        .findAllByGranularityAndBucketGreaterThanEqualAndBucketLessThan(DAY, month, next)) {
+                    monthly.computeIfAbsent(new HitKey(sketch.getAppId(), sketch.getUriId()), k -> new HyperLogLog())
+                            .merge(sketch.getRegisters());
+                }
+
+                saveRollups(MONTH, month, monthly);
+            }
+
+            day = next;
+        }
+
+        return day;
+    }
+
+    // Вызывающий держит блокировку строки hit_rollup_state, иначе параллельное слияние регистров теряет обновления.
+    // Суточный и месячный скетчи уже свёрнутых периодов дополняются тем же IP
+    @Transactional
+    public void add(EndpointHit hit, LocalDateTime compacted) {
+        LocalDateTime bucket = HOUR.floor(hit.getTimestamp());
+        Integer appId = hit.getApp().getId();
+        Long uriId = hit.getUri().getId();
+        HitSketch sketch = sketchRepository.findById(new HitCounterId(appId, uriId, bucket))
+                .orElseGet(() -> new HitSketch(appId, uriId, bucket, null));
+
+        HyperLogLog hll = HyperLogLog.fromBytes(sketch.getRegisters());
+        hll.add(hit.getIp());
+        sketch.setRegisters(hll.toBytes());
+        sketchRepository.save(sketch);
+
+        if (compacted == null) {
+            return;
+        }
+
+        for (SketchGranularity granularity : List.of(DAY, MONTH)) {
+            LocalDateTime start = granularity.floor(hit.getTimestamp());
+
+            if (granularity.next(start).isAfter(compacted)) {
+                continue;
+            }
+
+            HitSketchRollup rollup = rollupRepository.findById(new HitSketchRollupId(granularity, appId, uriId, start))
+                    .orElseGet(() -> new HitSketchRollup(granularity, appId, uriId, start, null));
+            HyperLogLog rolled = HyperLogLog.fromBytes(rollup.getRegisters());
+            rolled.add(hit.getIp());
+            rollup.setRegisters(rolled.toBytes());
+            rollupRepository.save(rollup);
+        }
+    }
+
+    // Часы до ближайших свёрнутых суток и после последних, между ними - сутки и целые месяцы.
+    // null - скетчей больше maxSketches
+    public Map<HitKey, HyperLogLog> load(LocalDateTime from, LocalDateTime to, LocalDateTime compacted,
+                                         DimensionFilter dimensions) {
+        Map<HitKey, HyperLogLog> result = new HashMap<>();
+
+        if (!to.isAfter(from)) {
+            return result;
+        }
+
+        int budget = maxSketches;
+
+        for (SketchRange range : plan(from, to, compacted)) {
+            int loaded = mergeRange(result, range, dimensions, budget);
+
+            if (loaded < 0) {
+                return null;
+            }
+
+            budget -= loaded;
+        }
+
+        return result;
+    }
+
+    public void addRaw(Map<HitKey, HyperLogLog> sketches, LocalDateTime from, LocalDateTime to,
+                       DimensionFilter dimensions) {
+        if (!to.isAfter(from)) {
+            return;
+        }
+
+        List<HitIpKey> keys = dimensions.allUris()
+                ? statRepository.findDistinctIpsInRangeAll(from, to, dimensions.appId(), dimensions.uriPattern())
+                : statRepository.findDistinctIpsInRangeByUris(from, to, dimensions.uriIds(), dimensions.appId(),
+                dimensions.uriPattern());
+
+        for (HitIpKey key : keys) {
+            sketches.computeIfAbsent(key.key(), d -> new HyperLogLog())
+                    .add(key.ip());
+        }
+    }
+
+    private List<SketchRange> plan(LocalDateTime from, LocalDateTime to, LocalDateTime compacted) {
+        List<SketchRange> ranges = new ArrayList<>();
+        LocalDateTime dayFrom = DAY.ceil(from);
+        LocalDateTime dayTo = compacted != null && compacted.isBefore(DAY.floor(to)) ? compacted : DAY.floor(to);
+
+        if (compacted == null || !dayTo.isAfter(dayFrom)) {
+            ranges.add(new SketchRange(HOUR, from, to));
+            return ranges;
+        }
+
+        ranges.add(new SketchRange(HOUR, from, dayFrom));
+        ranges.add(new SketchRange(HOUR, dayTo, to));
+
+        LocalDateTime monthFrom = MONTH.ceil(dayFrom);
+        LocalDateTime monthTo = MONTH.floor(dayTo);
+
+        if (monthTo.isAfter(monthFrom)) {
+            ranges.add(new SketchRange(DAY, dayFrom, monthFrom));
+            ranges.add(new SketchRange(MONTH, monthFrom, monthTo));
+            ranges.add(new SketchRange(DAY, monthTo, dayTo));
+        } else {
+            ranges.add(new SketchRange(DAY, dayFrom, dayTo));
+        }
+
+        return ranges;
+    }
+
+    // Число объединённых скетчей или -1, если их больше budget
+    private int mergeRange(Map<HitKey, HyperLogLog> result, SketchRange range, DimensionFilter dimensions,
+                           int budget) {
+        if (!range.to().isAfter(range.from())) {
+            return 0;
+        }
+
+        Pageable page = Pageable.ofSize(budget + 1);
+
+        if (range.granularity() == HOUR) {
+            List<HitSketch> sketches = dimensions.allUris()
+                    ? sketchRepository.findInRangeAll(range.from(), range.to(), dimensions.appId(),
+                    dimensions.uriPattern(), page)
+                    : sketchRepository.findInRangeByUris(range.from(), range.to(), dimensions.uriIds(),
+                    dimensions.appId(), dimensions.uriPattern(), page);
+
+            if (sketches.size() > budget) {
+                return -1;
+            }
+
+            for (HitSketch sketch : sketches) {
+                result.computeIfAbsent(new HitKey(sketch.getAppId(), sketch.getUriId()), d -> new HyperLogLog())
+                        .merge(sketch.getRegisters());
+            }
+
+            return sketches.size();
+        }
+
+        List<HitSketchRollup> sketches = dimensions.allUris()
+                ? rollupRepository.findInRangeAll(range.granularity(), range.from(), range.to(),
+                dimensions.appId(), dimensions.uriPattern(), page)
+                : rollupRepository.findInRangeByUris(range.granularity(), range.from(), range.to(),
+                dimensions.uriIds(), dimensions.appId(), dimensions.uriPattern(), page);
+
+        if (sketches.size() > budget) {
+            return -1;
+        }
+
+        for (HitSketchRollup sketch : sketches) {
+            result.computeIfAbsent(new HitKey(sketch.getAppId(), sketch.getUriId()), d -> new HyperLogLog())
+                    .merge(sketch.getRegisters());
+        }
+
+        return sketches.size();
+    }
+
+    private void saveRollups(SketchGranularity granularity, LocalDateTime bucket, Map<HitKey, HyperLogLog> sketches) {
+        rollupRepository.saveAll(sketches.entrySet().stream()
+                .map(entry -> new HitSketchRollup(granularity, entry.getKey().appId(), entry.getKey().uriId(),
+                        bucket, entry.getValue().toBytes()))
+                .toList());
+    }
+
+    private record SketchRange(SketchGranularity granularity, LocalDateTime from, LocalDateTime to) {
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.statservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statservice.model.ResourceKey;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Проставляет resource_type/resource_id хитам, сохранённым до появления этих колонок. Ключ зависит только от uri,
+// поэтому обходится словарь hit_uris, а хиты обновляются по uri_id. Выполняется один раз: после завершения
+// в stats_migrations остаётся отметка, и хиты без ключа (не ресурсные uri) больше не пересматриваются
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ResourceKeyBackfill {
+    private static final String MIGRATION = "resource-key-backfill";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${stats.resource-key.backfill:true}")
+    private boolean enabled;
+
+    @Value("${stats.resource-key.backfill-batch-size:1000}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!enabled || isCompleted()) {
+            return;
+        }
+
+        long afterId = 0L;
+        int updated = 0;
+
+        while (true) {
+            List<Object[]> uris = jdbcTemplate.query("SELECT id, uri FROM hit_uris WHERE id > ? ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new Object[]{rs.getLong("id"), rs.getString("uri")}, afterId, batchSize);
+
+            if (uris.isEmpty()) {
+                break;
+            }
+
+            List<Object[]> keys = new ArrayList<>();
+
+            for (Object[] uri : uris) {
+                ResourceKey key = ResourceKey.fromUri((String) uri[1]);
+
+                if (key != null) {
+                    keys.add(new Object[]{key.type(), key.id(), uri[0]});
+                }
+            }
+
+            if (!keys.isEmpty()) {
+                int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(
+                        "UPDATE endpoint_hits SET resource_type = ?, resource_id = ? " +
+                                "WHERE uri_id = ? AND resource_type IS NULL", keys));
+                updated += counts != null ? Arrays.stream(counts).map(count -> Math.max(count, 0)).sum() : 0;
+            }
+
+            afterId = (Long) uris.getLast()[0];
+        }
+
+        jdbcTemplate.update("INSERT INTO stats_migrations (name, completed_at) " +
+                "SELECT CAST(? AS VARCHAR(64)), CAST(? AS TIMESTAMP) " +
+                "WHERE NOT EXISTS (SELECT 1 FROM stats_migrations WHERE name = ?)", MIGRATION, LocalDateTime.now(),
+                MIGRATION);
+        log.info("Проставлены ключи ресурсов для {} хитов", updated);
+    }
+
+    private boolean isCompleted() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_migrations WHERE name = ?",
+                Integer.class, MIGRATION);
+        return count != null && count > 0;
+    }
+}
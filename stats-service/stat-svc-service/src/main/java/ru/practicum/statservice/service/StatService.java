@@ -3,10 +3,25 @@ package ru.practicum.statservice.service;
 import ru.practicum.dto.NewEndpointHitDto;
 import ru.practicum.dto.ViewStatsDto;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface StatService {
     void saveHit(NewEndpointHitDto hitDto);
 
-    List<ViewStatsDto> getStats(String start, String end, List<String> uris, boolean unique);
+    int saveHits(List<NewEndpointHitDto> hitDtos);
+
+    List<ViewStatsDto> getStats(String start, String end, List<String> uris, boolean unique, Boolean approximate,
+                                StatsFilter filter);
+
+    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                Boolean approximate, StatsFilter filter);
+
+    void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, StatsFilter filter,
+                     Consumer<ViewStatsDto> consumer);
+
+    Map<Long, Long> getResourceHits(LocalDateTime start, LocalDateTime end, String type, List<Long> ids,
+                                    boolean unique);
 }
@@ -1,18 +1,28 @@
 package ru.practicum.statservice.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.dto.NewEndpointHitDto;
 import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.statservice.mapper.EndpointHitMapper;
 import ru.practicum.statservice.model.EndpointHit;
+import ru.practicum.statservice.model.ResourceHits;
 import ru.practicum.statservice.repository.StatRepository;
+import ru.practicum.statservice.store.ColumnarHitStore;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -20,41 +30,82 @@ import java.util.List;
 public class StatServiceImpl implements StatService {
     private final StatRepository repository;
     private final EndpointHitMapper mapper;
+    private final HitRollupService rollupService;
+    private final ColumnarHitStore hitStore;
+    private final HitDimensionService dimensionService;
+    private final TransactionTemplate transactionTemplate;
 
     private static final DateTimeFormatter FORMATTER =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    @Value("${stats.unique.approximate:false}")
+    private boolean approximateByDefault;
+
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void saveHit(NewEndpointHitDto hitDto) {
-        EndpointHit hit = mapper.mapToEndpointHit(hitDto);
-        repository.save(hit);
+        save(List.of(toEndpointHit(hitDto)));
+    }
+
+    // app и uri разрешаются в id до открытия транзакции записи: новые значения словаря вставляются
+    // в собственных транзакциях, и запись хитов не держит второе соединение из пула
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int saveHits(List<NewEndpointHitDto> hitDtos) {
+        List<EndpointHit> hits = hitDtos.stream()
+                .map(this::toEndpointHit)
+                .toList();
+        save(hits);
+        return hits.size();
     }
 
     @Override
     public List<ViewStatsDto> getStats(String start, String end,
-                                       List<String> uris, boolean unique) {
+                                       List<String> uris, boolean unique, Boolean approximate, StatsFilter filter) {
+
+        // Конвертируем строки в LocalDateTime
+        return getStats(LocalDateTime.parse(start, FORMATTER), LocalDateTime.parse(end, FORMATTER),
+                uris, unique, approximate, filter);
+    }
+
+    @Override
+    public List<ViewStatsDto> getStats(LocalDateTime startTime, LocalDateTime endTime,
+                                       List<String> uris, boolean unique, Boolean approximate, StatsFilter filter) {
 
         try {
-            // Конвертируем строки в LocalDateTime
-            LocalDateTime startTime = LocalDateTime.parse(start, FORMATTER);
-            LocalDateTime endTime = LocalDateTime.parse(end, FORMATTER);
+            // Свежее окно считается в памяти точно, в том числе уникальные IP
+            if (hitStore.covers(startTime)) {
+                return hitStore.getStats(startTime, endTime, uris, unique, filter);
+            }
+
+            DimensionFilter dimensions = dimensionService.resolve(uris, filter).orElse(null);
+
+            if (dimensions == null) {
+                return Collections.emptyList();
+            }
+
+            if (unique && (approximate != null ? approximate : approximateByDefault)) {
+                Optional<List<ViewStatsDto>> approximateStats =
+                        rollupService.getUniqueHitsApproximate(startTime, endTime, dimensions, filter);
+
+                if (approximateStats.isPresent()) {
+                    return approximateStats.get();
+                }
+            }
+
+            if (!unique) {
+                return rollupService.getHits(startTime, endTime, dimensions, filter);
+            }
 
             // Вызываем соответствующие методы репозитория
-            if (uris == null || uris.isEmpty()) {
+            if (dimensions.allUris()) {
                 // Все URI
-                if (unique) {
-                    return repository.findUniqueHitsAll(startTime, endTime);
-                } else {
-                    return repository.findAllHitsAll(startTime, endTime);
-                }
+                return repository.findUniqueHitsAll(startTime, endTime, dimensions.appId(),
+                        dimensions.uriPattern(), filter.pageable());
             } else {
                 // Только указанные URI
-                if (unique) {
-                    return repository.findUniqueHitsByUris(startTime, endTime, uris);
-                } else {
-                    return repository.findAllHitsByUris(startTime, endTime, uris);
-                }
+                return repository.findUniqueHitsByUris(startTime, endTime, dimensions.uriIds(),
+                        dimensions.appId(), dimensions.uriPattern(), filter.pageable());
             }
 
         } catch (Exception e) {
@@ -63,4 +114,63 @@ public class StatServiceImpl implements StatService {
             return Collections.emptyList();
         }
     }
+
+    // Точный подсчёт по сырым хитам через курсор БД: строки передаются потребителю по мере чтения,
+    // поэтому память не зависит от размера результата. Колоночное хранилище и свёртки здесь не используются
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                            StatsFilter filter, Consumer<ViewStatsDto> consumer) {
+        DimensionFilter dimensions = dimensionService.resolve(uris, filter).orElse(null);
+
+        if (dimensions == null) {
+            return;
+        }
+
+        try (Stream<ViewStatsDto> stats = openStream(start, end, unique, dimensions)) {
+            (filter.limit() != null ? stats.limit(filter.limit()) : stats).forEach(consumer);
+        }
+    }
+
+    // id -> число хитов; ресурсы без хитов в ответ не попадают
+    @Override
+    public Map<Long, Long> getResourceHits(LocalDateTime start, LocalDateTime end, String type, List<Long> ids,
+                                           boolean unique) {
+        List<ResourceHits> hits = unique
+                ? repository.findUniqueHitsByResourceIds(type, ids, start, end)
+                : repository.findAllHitsByResourceIds(type, ids, start, end);
+
+        return hits.stream()
+                .collect(Collectors.toMap(ResourceHits::resourceId, ResourceHits::hits));
+    }
+
+    private void save(List<EndpointHit> hits) {
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.saveAll(hits);
+            rollupService.registerLateHits(hits);
+            hitStore.append(hits);
+        });
+    }
+
+    private EndpointHit toEndpointHit(NewEndpointHitDto hitDto) {
+        EndpointHit hit = mapper.mapToEndpointHit(hitDto);
+        hit.setApp(dimensionService.resolveApp(hitDto.getApp()));
+        hit.setUri(dimensionService.resolveUri(hitDto.getUri()));
+        return hit;
+    }
+
+    private Stream<ViewStatsDto> openStream(LocalDateTime start, LocalDateTime end, boolean unique,
+                                            DimensionFilter dimensions) {
+        Integer appId = dimensions.appId();
+        String uriPattern = dimensions.uriPattern();
+
+        if (dimensions.allUris()) {
+            return unique
+                    ? repository.streamUniqueHitsAll(start, end, appId, uriPattern)
+                    : repository.streamAllHitsAll(start, end, appId, uriPattern);
+        }
+
+        return unique
+                ? repository.streamUniqueHitsByUris(start, end, dimensions.uriIds(), appId, uriPattern)
+                : repository.streamAllHitsByUris(start, end, dimensions.uriIds(), appId, uriPattern);
+    }
 }
@@ -0,0 +1,65 @@
+package ru.practicum.statservice.service;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.util.*;
+
+/**
+ * Дополнительные условия /stats: приложение, префикс uri и ограничение на число строк (top-N).
+ * Пустые строки считаются отсутствием фильтра.
+ */
+public record StatsFilter(String app, String uriPrefix, Integer limit) {
+    public static final StatsFilter NONE = new StatsFilter(null, null, null);
+
+    private static final Comparator<ViewStatsDto> BY_HITS = Comparator.comparing(ViewStatsDto::getHits);
+
+    public StatsFilter {
+        app = app == null || app.isBlank() ? null : app;
+        uriPrefix = uriPrefix == null || uriPrefix.isEmpty() ? null : uriPrefix;
+    }
+
+    // Шаблон для LIKE ... ESCAPE '\': спецсимволы в префиксе сравниваются буквально
+    public String uriPattern() {
+        if (uriPrefix == null) {
+            return null;
+        }
+
+        return uriPrefix.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+
+    public boolean matches(String app, String uri) {
+        return (this.app == null || this.app.equals(app)) && (uriPrefix == null || uri.startsWith(uriPrefix));
+    }
+
+    public Pageable pageable() {
+        return limit != null ? PageRequest.of(0, limit) : Pageable.unpaged();
+    }
+
+    // Без limit - полная сортировка; с limit - куча из limit элементов, O(n log N) вместо O(n log n)
+    public List<ViewStatsDto> top(Collection<ViewStatsDto> stats) {
+        if (limit == null || stats.size() <= limit) {
+            List<ViewStatsDto> sorted = new ArrayList<>(stats);
+            sorted.sort(BY_HITS.reversed());
+            return sorted;
+        }
+
+        PriorityQueue<ViewStatsDto> heap = new PriorityQueue<>(limit + 1, BY_HITS);
+
+        for (ViewStatsDto stat : stats) {
+            if (heap.size() < limit) {
+                heap.add(stat);
+            } else if (stat.getHits() > heap.peek().getHits()) {
+                heap.poll();
+                heap.add(stat);
+            }
+        }
+
+        List<ViewStatsDto> result = new ArrayList<>(heap);
+        result.sort(BY_HITS.reversed());
+        return result;
+    }
+}
@@ -0,0 +1,140 @@
+package ru.practicum.statservice.sketch;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog с точностью p = 12 (4096 однобайтовых регистров).
+ * Стандартная ошибка оценки 1.04 / sqrt(4096) ≈ 1.6%, т.е. примерно в 95% случаев
+ * результат отличается от точного COUNT(DISTINCT) не более чем на 3.3%.
+ * Скетчи с одинаковой точностью объединяются без потери точности.
+ * Скетч с небольшим числом ненулевых регистров (час редко посещаемого uri) хранится разреженно:
+ * по 3 байта (номер регистра, значение) на ненулевой регистр вместо 4096 байт.
+ */
+public class HyperLogLog {
+    public static final int PRECISION = 12;
+    public static final int REGISTERS = 1 << PRECISION;
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+    private static final int SPARSE_ENTRY = 3;
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        HyperLogLog hll = new HyperLogLog();
+        hll.merge(bytes);
+        return hll;
+    }
+
+    // Плотная форма - ровно REGISTERS байт; разреженная - кратна SPARSE_ENTRY и всегда короче (4096 % 3 != 0)
+    public byte[] toBytes() {
+        int nonZero = 0;
+
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+
+        if (nonZero * SPARSE_ENTRY >= REGISTERS) {
+            return registers.clone();
+        }
+
+        byte[] sparse = new byte[nonZero * SPARSE_ENTRY];
+        int offset = 0;
+
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] != 0) {
+                sparse[offset++] = (byte) (i >>> 8);
+                sparse[offset++] = (byte) i;
+                sparse[offset++] = registers[i];
+            }
+        }
+
+        return sparse;
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        long rest = hash << PRECISION;
+        int rank = rest == 0 ? Long.SIZE - PRECISION + 1 : Long.numberOfLeadingZeros(rest) + 1;
+
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    // Слияние с сохранённым скетчем без промежуточного объекта: разреженная форма обходится за O(ненулевых)
+    public void merge(byte[] bytes) {
+        if (bytes == null) {
+            return;
+        }
+
+        if (bytes.length == REGISTERS) {
+            for (int i = 0; i < REGISTERS; i++) {
+                if (bytes[i] > registers[i]) {
+                    registers[i] = bytes[i];
+                }
+            }
+        } else if (bytes.length % SPARSE_ENTRY == 0) {
+            for (int offset = 0; offset < bytes.length; offset += SPARSE_ENTRY) {
+                int index = (bytes[offset] & 0xff) << 8 | bytes[offset + 1] & 0xff;
+
+                if (index < REGISTERS && bytes[offset + 2] > registers[index]) {
+                    registers[index] = bytes[offset + 2];
+                }
+            }
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+
+        return Math.round(estimate);
+    }
+
+    // FNV-1a с финальным перемешиванием из MurmurHash3
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
@@ -0,0 +1,50 @@
+package ru.practicum.statservice.sketch;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// Уровни скетчей уникальных IP: часовые пишутся при свёртке, суточные и месячные собираются из них
+public enum SketchGranularity {
+    HOUR {
+        @Override
+        public LocalDateTime floor(LocalDateTime time) {
+            return time.truncatedTo(ChronoUnit.HOURS);
+        }
+
+        @Override
+        public LocalDateTime next(LocalDateTime start) {
+            return start.plusHours(1);
+        }
+    },
+    DAY {
+        @Override
+        public LocalDateTime floor(LocalDateTime time) {
+            return time.truncatedTo(ChronoUnit.DAYS);
+        }
+
+        @Override
+        public LocalDateTime next(LocalDateTime start) {
+            return start.plusDays(1);
+        }
+    },
+    MONTH {
+        @Override
+        public LocalDateTime floor(LocalDateTime time) {
+            return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        }
+
+        @Override
+        public LocalDateTime next(LocalDateTime start) {
+            return start.plusMonths(1);
+        }
+    };
+
+    public abstract LocalDateTime floor(LocalDateTime time);
+
+    public abstract LocalDateTime next(LocalDateTime start);
+
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.equals(time) ? floor : next(floor);
+    }
+}
@@ -0,0 +1,436 @@
+package ru.practicum.statservice.store;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statservice.model.EndpointHit;
+import ru.practicum.statservice.model.HitRow;
+import ru.practicum.statservice.repository.StatRepository;
+import ru.practicum.statservice.service.StatsFilter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Колоночная копия свежих хитов в памяти: время в микросекундах, app/uri как коды словаря сегмента, IPv4 как число.
+ * Хиты разбиты на часовые сегменты, /stats за последние stats.store.columnar.retention считается проходом
+ * по массивам без обращения к БД. Postgres остаётся основным хранилищем: при старте хранилище заполняется
+ * из него, новые хиты добавляются после коммита их транзакции.
+ * <p>
+ * Хранилище видит только хиты, записанные через свой экземпляр сервиса: при нескольких узлах каждый недосчитывал бы
+ * хиты соседей. Поэтому оно включается только вместе с stats.store.columnar.single-instance=true - подтверждением,
+ * что статистику пишет и читает единственный экземпляр.
+ */
+@Slf4j
+@Component
+public class ColumnarHitStore {
+    private static final long MICROS_PER_HOUR = ChronoUnit.HOURS.getDuration().toNanos() / 1000;
+
+    private final StatRepository statRepository;
+    private final TransactionTemplate snapshotTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<Long, HitSegment> segments = new TreeMap<>();
+    // Хиты, закоммиченные во время первичной загрузки; применяются после неё без дублей
+    private final List<HitRow> pending = new ArrayList<>();
+
+    private volatile boolean ready;
+    private volatile long coveredFrom = Long.MAX_VALUE;
+
+    @Value("${stats.store.columnar.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.store.columnar.single-instance:false}")
+    private boolean singleInstance;
+
+    @Value("${stats.store.columnar.retention:2d}")
+    private Duration retention;
+
+    @Value("${stats.store.columnar.load-batch-size:5000}")
+    private int loadBatchSize;
+
+    public ColumnarHitStore(StatRepository statRepository, PlatformTransactionManager transactionManager) {
+        this.statRepository = statRepository;
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void checkDeployment() {
+        if (enabled && !singleInstance) {
+            log.warn("Колоночное хранилище отключено: оно верно только для одного экземпляра сервиса, " +
+                    "задайте stats.store.columnar.single-instance=true");
+            enabled = false;
+        }
+    }
+
+    // Интервал можно посчитать в памяти, только если он целиком внутри загруженного окна
+    public boolean covers(LocalDateTime start) {
+        return ready && toMicros(start) >= coveredFrom;
+    }
+
+    public void append(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+
+        List<HitRow> rows = hits.stream()
+                .map(hit -> new HitRow(hit.getId(), hit.getApp().getName(), hit.getUri().getUri(), hit.getIp(),
+                        hit.getTimestamp()))
+                .toList();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    appendCommitted(rows);
+                }
+            });
+        } else {
+            appendCommitted(rows);
+        }
+    }
+
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                       StatsFilter filter) {
+        long from = toMicros(start);
+        long to = toMicros(end);
+
+        lock.readLock().lock();
+        try {
+            Collection<HitSegment> scanned = segments.subMap(Math.floorDiv(from, MICROS_PER_HOUR), true,
+                    Math.floorDiv(to, MICROS_PER_HOUR), true).values();
+
+            return filter.top(unique
+                    ? countUnique(scanned, from, to, uris, filter)
+                    : countAll(scanned, from, to, uris, filter));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        LocalDateTime since = LocalDateTime.now().minus(retention).truncatedTo(ChronoUnit.HOURS);
+
+        lock.writeLock().lock();
+        try {
+            coveredFrom = toMicros(since);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Всё окно читается в одном снимке; хиты, закоммиченные после него, приходят через pending
+        Integer loaded = snapshotTemplate.execute(status -> {
+            long afterId = 0L;
+            int count = 0;
+
+            while (true) {
+                List<HitRow> rows = statRepository.findRowsSinceAfterId(since, afterId,
+                        PageRequest.of(0, loadBatchSize));
+
+                if (rows.isEmpty()) {
+                    break;
+                }
+
+                lock.writeLock().lock();
+                try {
+                    rows.forEach(this::appendRow);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+
+                count += rows.size();
+                afterId = rows.getLast().id();
+            }
+
+            lock.writeLock().lock();
+            try {
+                Set<Long> visible = new HashSet<>();
+
+                for (int i = 0; i < pending.size(); i += loadBatchSize) {
+                    visible.addAll(statRepository.findExistingIds(pending.subList(i,
+                                    Math.min(i + loadBatchSize, pending.size())).stream()
+                            .map(HitRow::id)
+                            .toList()));
+                }
+
+                pending.stream()
+                        .filter(row -> !visible.contains(row.id()))
+                        .forEach(this::appendRow);
+                pending.clear();
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            return count;
+        });
+
+        log.info("Колоночное хранилище загружено: {} хитов с {} за {} мс", loaded, since,
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    @Scheduled(fixedDelayString = "${stats.store.columnar.eviction-interval:600000}")
+    public void evict() {
+        if (!enabled || !ready) {
+            return;
+        }
+
+        long threshold = toMicros(LocalDateTime.now().minus(retention).truncatedTo(ChronoUnit.HOURS));
+
+        lock.writeLock().lock();
+        try {
+            if (threshold > coveredFrom) {
+                coveredFrom = threshold;
+                segments.headMap(Math.floorDiv(threshold, MICROS_PER_HOUR), false).clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void appendCommitted(List<HitRow> rows) {
+        lock.writeLock().lock();
+        try {
+            if (ready) {
+                rows.forEach(this::appendRow);
+            } else if (coveredFrom != Long.MAX_VALUE) {
+                pending.addAll(rows);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Хиты старше окна пропускаются: такие интервалы всё равно считаются по БД
+    private void appendRow(HitRow row) {
+        long timestamp = toMicros(row.timestamp());
+
+        if (timestamp < coveredFrom) {
+            return;
+        }
+
+        segments.computeIfAbsent(Math.floorDiv(timestamp, MICROS_PER_HOUR), hour -> new HitSegment())
+                .append(timestamp, row.app(), row.uri(), row.ip());
+    }
+
+    // Коды app и uri сегмента, подходящие под фильтры; null - в сегменте нет подходящих хитов
+    private static SegmentFilter segmentFilter(HitSegment segment, List<String> uris, StatsFilter filter) {
+        int app = -1;
+
+        if (filter.app() != null) {
+            app = segment.appDictionary.find(filter.app());
+
+            if (app < 0) {
+                return null;
+            }
+        }
+
+        BitSet uriCodes = null;
+
+        if (uris != null && !uris.isEmpty()) {
+            uriCodes = new BitSet(segment.uriDictionary.size());
+
+            for (String uri : uris) {
+                int code = segment.uriDictionary.find(uri);
+
+                if (code >= 0) {
+                    uriCodes.set(code);
+                }
+            }
+        }
+
+        // Префикс сверяется только со словарём сегмента - число его строк не больше числа хитов в сегменте
+        if (filter.uriPrefix() != null) {
+            BitSet prefixed = new BitSet(segment.uriDictionary.size());
+
+            for (int code = 0; code < segment.uriDictionary.size(); code++) {
+                if (segment.uriDictionary.decode(code).startsWith(filter.uriPrefix())) {
+                    prefixed.set(code);
+                }
+            }
+
+            if (uriCodes == null) {
+                uriCodes = prefixed;
+            } else {
+                uriCodes.and(prefixed);
+            }
+        }
+
+        return uriCodes != null && uriCodes.isEmpty() ? null : new SegmentFilter(app, uriCodes);
+    }
+
+    // Счётчики заводятся на сегмент по размеру его словарей и сразу сворачиваются в общий результат по строкам
+    private List<ViewStatsDto> countAll(Collection<HitSegment> scanned, long from, long to, List<String> uris,
+                                        StatsFilter filter) {
+        Map<List<String>, Long> totals = new HashMap<>();
+
+        for (HitSegment segment : scanned) {
+            SegmentFilter segmentFilter = segmentFilter(segment, uris, filter);
+
+            if (segmentFilter == null) {
+                continue;
+            }
+
+            long[][] counts = new long[segment.appDictionary.size()][];
+
+            for (int i = 0; i < segment.size; i++) {
+                if (!segmentFilter.matches(segment, i, from, to)) {
+                    continue;
+                }
+
+                long[] row = counts[segment.apps[i]];
+
+                if (row == null) {
+                    row = new long[segment.uriDictionary.size()];
+                    counts[segment.apps[i]] = row;
+                }
+
+                row[segment.uris[i]]++;
+            }
+
+            for (int app = 0; app < counts.length; app++) {
+                if (counts[app] == null) {
+                    continue;
+                }
+
+                for (int uri = 0; uri < counts[app].length; uri++) {
+                    if (counts[app][uri] > 0) {
+                        totals.merge(List.of(segment.appDictionary.decode(app), segment.uriDictionary.decode(uri)),
+                                counts[app][uri], Long::sum);
+                    }
+                }
+            }
+        }
+
+        return totals.entrySet().stream()
+                .map(entry -> new ViewStatsDto(entry.getKey().get(0), entry.getKey().get(1), entry.getValue()))
+                .toList();
+    }
+
+    private List<ViewStatsDto> countUnique(Collection<HitSegment> scanned, long from, long to, List<String> uris,
+                                           StatsFilter filter) {
+        Map<List<String>, UniqueIps> ips = new HashMap<>();
+
+        for (HitSegment segment : scanned) {
+            SegmentFilter segmentFilter = segmentFilter(segment, uris, filter);
+
+            if (segmentFilter == null) {
+                continue;
+            }
+
+            // Коды сегмента -> общее множество IP пары (app, uri); строки пары собираются один раз на сегмент
+            Map<Long, UniqueIps> local = new HashMap<>();
+
+            for (int i = 0; i < segment.size; i++) {
+                if (!segmentFilter.matches(segment, i, from, to)) {
+                    continue;
+                }
+
+                long dimension = (long) segment.apps[i] << 32 | segment.uris[i];
+                UniqueIps unique = local.computeIfAbsent(dimension, d -> ips.computeIfAbsent(
+                        List.of(segment.appDictionary.decode((int) (d >>> 32)),
+                                segment.uriDictionary.decode((int) (long) d)),
+                        key -> new UniqueIps()));
+                long ip = segment.ips[i];
+
+                if (ip >= 0) {
+                    unique.add(ip);
+                } else {
+                    unique.add(segment.textIp(ip));
+                }
+            }
+        }
+
+        return ips.entrySet().stream()
+                .map(entry -> new ViewStatsDto(entry.getKey().get(0), entry.getKey().get(1), entry.getValue().count()))
+                .toList();
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1000;
+    }
+
+    // Уникальные IP пары (app, uri): IPv4 - в массиве long, который при заполнении сортируется и очищается
+    // от повторов, поэтому растёт по числу различных адресов, а не хитов. Прочие адреса - строками
+    private static final class UniqueIps {
+        private long[] ipv4 = new long[16];
+        private int size;
+        private int distinct;
+        private Set<String> other;
+
+        void add(long ip) {
+            if (size == ipv4.length) {
+                compact();
+
+                if (size * 2 > ipv4.length) {
+                    ipv4 = Arrays.copyOf(ipv4, ipv4.length * 2);
+                }
+            }
+
+            ipv4[size++] = ip;
+        }
+
+        void add(String ip) {
+            if (other == null) {
+                other = new HashSet<>();
+            }
+
+            other.add(ip);
+        }
+
+        long count() {
+            compact();
+            return size + (other != null ? other.size() : 0);
+        }
+
+        // Первые distinct элементов уже отсортированы и без повторов
+        private void compact() {
+            if (distinct == size) {
+                return;
+            }
+
+            Arrays.sort(ipv4, 0, size);
+            int unique = 0;
+
+            for (int i = 0; i < size; i++) {
+                if (unique == 0 || ipv4[i] != ipv4[unique - 1]) {
+                    ipv4[unique++] = ipv4[i];
+                }
+            }
+
+            size = unique;
+            distinct = unique;
+        }
+    }
+
+    private record SegmentFilter(int app, BitSet uris) {
+        boolean matches(HitSegment segment, int index, long from, long to) {
+            long timestamp = segment.timestamps[index];
+            return timestamp >= from && timestamp <= to
+                    && (app < 0 || segment.apps[index] == app)
+                    && (uris == null || uris.get(segment.uris[index]));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ru.practicum.statservice.store;
+
+import ru.practicum.statservice.model.IpAddressConverter;
+
+import java.util.Arrays;
+
+// Хиты одного часа в колонках примитивных массивов. Словари app/uri/ip свои у каждого сегмента и удаляются
+// вместе с ним, поэтому память ограничена окном хранения. Не потокобезопасен, доступ под блокировкой хранилища
+class HitSegment {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    final StringDictionary appDictionary = new StringDictionary();
+    final StringDictionary uriDictionary = new StringDictionary();
+    final StringDictionary ipDictionary = new StringDictionary();
+
+    long[] timestamps = new long[INITIAL_CAPACITY];
+    int[] apps = new int[INITIAL_CAPACITY];
+    int[] uris = new int[INITIAL_CAPACITY];
+    long[] ips = new long[INITIAL_CAPACITY];
+    int size;
+
+    void append(long timestamp, String app, String uri, String ip) {
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            apps = Arrays.copyOf(apps, capacity);
+            uris = Arrays.copyOf(uris, capacity);
+            ips = Arrays.copyOf(ips, capacity);
+        }
+
+        timestamps[size] = timestamp;
+        apps[size] = appDictionary.encode(app);
+        uris[size] = uriDictionary.encode(uri);
+        ips[size] = encodeIp(ip);
+        size++;
+    }
+
+    // Адрес, не являющийся IPv4, по отрицательному коду из ips
+    String textIp(long code) {
+        return ipDictionary.decode((int) (-1L - code));
+    }
+
+    // IPv4 кодируется своим 32-битным значением, остальные адреса - отрицательным кодом словаря
+    private long encodeIp(String ip) {
+        byte[] ipv4 = IpAddressConverter.parseIpv4(ip);
+
+        if (ipv4 == null) {
+            return -1L - ipDictionary.encode(ip);
+        }
+
+        return (ipv4[0] & 0xFFL) << 24 | (ipv4[1] & 0xFFL) << 16 | (ipv4[2] & 0xFFL) << 8 | ipv4[3] & 0xFFL;
+    }
+}
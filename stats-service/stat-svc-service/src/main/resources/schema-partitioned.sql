@@ -0,0 +1,12 @@
+CREATE SEQUENCE IF NOT EXISTS endpoint_hits_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS endpoint_hits (
+    id BIGINT DEFAULT nextval('endpoint_hits_seq') NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id BIGINT NOT NULL,
+    ip_address BYTEA NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    resource_type VARCHAR(32),
+    resource_id BIGINT,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
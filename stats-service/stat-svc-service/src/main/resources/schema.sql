@@ -1,11 +1,91 @@
-CREATE TABLE IF NOT EXISTS endpoint_hits (
+-- На базе со старыми хитами последовательность переставляется за MAX(id) при старте (HitSequenceMigration)
+CREATE SEQUENCE IF NOT EXISTS endpoint_hits_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS hit_apps (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS hit_uris (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    app VARCHAR(255) NOT NULL,
-    uri VARCHAR(2048) NOT NULL,
-    ip VARCHAR(50) NOT NULL,
-    timestamp TIMESTAMP NOT NULL
+    uri VARCHAR(2048) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS endpoint_hits (
+    id BIGINT DEFAULT nextval('endpoint_hits_seq') PRIMARY KEY,
+    app_id INTEGER NOT NULL,
+    uri_id BIGINT NOT NULL,
+    ip_address BYTEA NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    resource_type VARCHAR(32),
+    resource_id BIGINT
 );
 
+ALTER TABLE endpoint_hits ADD COLUMN IF NOT EXISTS resource_type VARCHAR(32);
+ALTER TABLE endpoint_hits ADD COLUMN IF NOT EXISTS resource_id BIGINT;
+-- Строковые app/uri старых таблиц переносятся в словари при старте (HitDimensionMigration)
+ALTER TABLE endpoint_hits ADD COLUMN IF NOT EXISTS app_id INTEGER;
+ALTER TABLE endpoint_hits ADD COLUMN IF NOT EXISTS uri_id BIGINT;
+-- Текстовый ip переводится в бинарный ip_address при старте (HitIpMigration)
+ALTER TABLE endpoint_hits ADD COLUMN IF NOT EXISTS ip_address BYTEA;
+
 CREATE INDEX IF NOT EXISTS idx_endpoint_hits_timestamp ON endpoint_hits (timestamp);
-CREATE INDEX IF NOT EXISTS idx_endpoint_hits_uri ON endpoint_hits (uri);
-CREATE INDEX IF NOT EXISTS idx_endpoint_hits_app_uri ON endpoint_hits (app, uri);
+DROP INDEX IF EXISTS idx_endpoint_hits_uri_id;
+CREATE INDEX IF NOT EXISTS idx_endpoint_hits_uri_ip ON endpoint_hits (uri_id, timestamp, app_id, ip_address);
+CREATE INDEX IF NOT EXISTS idx_endpoint_hits_app_uri_id ON endpoint_hits (app_id, uri_id);
+CREATE INDEX IF NOT EXISTS idx_endpoint_hits_resource ON endpoint_hits (resource_type, resource_id, timestamp);
+
+CREATE TABLE IF NOT EXISTS endpoint_hit_counters (
+    app_id INTEGER NOT NULL,
+    uri_id BIGINT NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+-- Строковые app/uri старых корзин и скетчей переносятся в словари при старте (HitRollupKeyMigration)
+ALTER TABLE endpoint_hit_counters ADD COLUMN IF NOT EXISTS app_id INTEGER;
+ALTER TABLE endpoint_hit_counters ADD COLUMN IF NOT EXISTS uri_id BIGINT;
+
+CREATE INDEX IF NOT EXISTS idx_endpoint_hit_counters_bucket ON endpoint_hit_counters (bucket);
+
+CREATE TABLE IF NOT EXISTS endpoint_hit_sketches (
+    app_id INTEGER NOT NULL,
+    uri_id BIGINT NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    registers BYTEA NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+ALTER TABLE endpoint_hit_sketches ADD COLUMN IF NOT EXISTS app_id INTEGER;
+ALTER TABLE endpoint_hit_sketches ADD COLUMN IF NOT EXISTS uri_id BIGINT;
+
+CREATE INDEX IF NOT EXISTS idx_endpoint_hit_sketches_bucket ON endpoint_hit_sketches (bucket);
+
+-- Суточные и месячные скетчи: запрос за длинный период объединяет их вместо всех часовых
+CREATE TABLE IF NOT EXISTS endpoint_hit_sketch_rollups (
+    granularity VARCHAR(8) NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id BIGINT NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    registers BYTEA NOT NULL,
+    PRIMARY KEY (granularity, app_id, uri_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS idx_endpoint_hit_sketch_rollups_bucket ON endpoint_hit_sketch_rollups (granularity, bucket);
+
+CREATE TABLE IF NOT EXISTS hit_rollup_state (
+    id INTEGER PRIMARY KEY,
+    watermark TIMESTAMP
+);
+
+ALTER TABLE hit_rollup_state ADD COLUMN IF NOT EXISTS sketch_watermark TIMESTAMP;
+
+INSERT INTO hit_rollup_state (id, watermark)
+SELECT 1, NULL WHERE NOT EXISTS (SELECT 1 FROM hit_rollup_state WHERE id = 1);
+
+-- Выполненные разовые миграции данных, чтобы они не повторялись при каждом старте
+CREATE TABLE IF NOT EXISTS stats_migrations (
+    name VARCHAR(64) PRIMARY KEY,
+    completed_at TIMESTAMP NOT NULL
+);